@@ -0,0 +1,54 @@
+package ru.practicum.client;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import ru.practicum.dto.EndpointHit;
+import ru.practicum.dto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs stats server calls through circuit breakers. While one is open, its calls fail at once with
+ * {@link io.github.resilience4j.circuitbreaker.CallNotPermittedException} instead of waiting for timeouts;
+ * callers fall back the same way as for any other failure.
+ * <p>
+ * Stats lookups and hit shipping have breakers of their own, so failing or slow hit batches do not cut off
+ * page reads. Streamed full-history queries, made only by the periodic views refresh, are not guarded: they
+ * are slow by design and would open a breaker that page reads depend on.
+ */
+public class CircuitBreakingStatsClient implements StatsClient {
+
+    private final StatsClient delegate;
+    private final CircuitBreaker readCircuitBreaker;
+    private final CircuitBreaker hitsCircuitBreaker;
+
+    public CircuitBreakingStatsClient(StatsClient delegate, CircuitBreaker readCircuitBreaker,
+                                      CircuitBreaker hitsCircuitBreaker) {
+        this.delegate = delegate;
+        this.readCircuitBreaker = readCircuitBreaker;
+        this.hitsCircuitBreaker = hitsCircuitBreaker;
+    }
+
+    @Override
+    public void saveHit(EndpointHit hit) {
+        hitsCircuitBreaker.executeRunnable(() -> delegate.saveHit(hit));
+    }
+
+    @Override
+    public void saveHits(List<EndpointHit> hits) {
+        hitsCircuitBreaker.executeRunnable(() -> delegate.saveHits(hits));
+    }
+
+    @Override
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                    boolean approximate) {
+        return readCircuitBreaker.executeSupplier(() -> delegate.getStats(start, end, uris, unique, approximate));
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                            boolean approximate, Consumer<ViewStats> consumer) {
+        delegate.streamStats(start, end, uris, unique, approximate, consumer);
+    }
+}
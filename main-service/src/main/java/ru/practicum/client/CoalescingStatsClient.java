@@ -0,0 +1,91 @@
+package ru.practicum.client;
+
+import io.micrometer.core.instrument.Counter;
+import ru.practicum.dto.EndpointHit;
+import ru.practicum.dto.ViewStats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Shares one outbound {@code /stats} request between callers asking the same question at the same time.
+ * Requests match when they have the same start, uri set and mode: the stats API takes times to the second,
+ * and the order of uris does not change the answer. Callers usually pass "now" as the end, so ends only have
+ * to be within a tolerance of the running request's end; a caller whose end is further away sends its own
+ * request. Hits and streamed stats are sent through as they are.
+ */
+public class CoalescingStatsClient implements StatsClient {
+
+    private final StatsClient delegate;
+    private final Counter coalescedCounter;
+    private final Duration endTolerance;
+    private final ConcurrentMap<StatsRequest, Flight> inFlight = new ConcurrentHashMap<>();
+
+    public CoalescingStatsClient(StatsClient delegate, Counter coalescedCounter, Duration endTolerance) {
+        this.delegate = delegate;
+        this.coalescedCounter = coalescedCounter;
+        this.endTolerance = endTolerance;
+    }
+
+    @Override
+    public void saveHit(EndpointHit hit) {
+        delegate.saveHit(hit);
+    }
+
+    @Override
+    public void saveHits(List<EndpointHit> hits) {
+        delegate.saveHits(hits);
+    }
+
+    @Override
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                    boolean approximate) {
+        StatsRequest request = new StatsRequest(start.truncatedTo(ChronoUnit.SECONDS),
+                uris == null ? null : Set.copyOf(uris), unique, approximate);
+
+        Flight own = new Flight(end, new CompletableFuture<>());
+        Flight running = inFlight.putIfAbsent(request, own);
+        if (running != null) {
+            if (Duration.between(running.end(), end).abs().compareTo(endTolerance) > 0) {
+                return delegate.getStats(start, end, uris, unique, approximate);
+            }
+            coalescedCounter.increment();
+            try {
+                return running.result().join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            List<ViewStats> stats = List.copyOf(delegate.getStats(start, end, uris, unique, approximate));
+            own.result().complete(stats);
+            return stats;
+        } catch (RuntimeException e) {
+            own.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(request, own);
+        }
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                            boolean approximate, Consumer<ViewStats> consumer) {
+        delegate.streamStats(start, end, uris, unique, approximate, consumer);
+    }
+
+    private record StatsRequest(LocalDateTime start, Set<String> uris, Boolean unique, boolean approximate) {
+    }
+
+    private record Flight(LocalDateTime end, CompletableFuture<List<ViewStats>> result) {
+    }
+}
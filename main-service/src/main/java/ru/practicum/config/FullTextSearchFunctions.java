@@ -0,0 +1,67 @@
+package ru.practicum.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.query.ReturnableType;
+import org.hibernate.query.sqm.function.AbstractSqmSelfRenderingFunctionDescriptor;
+import org.hibernate.query.sqm.produce.function.StandardArgumentsValidators;
+import org.hibernate.query.sqm.produce.function.StandardFunctionArgumentTypeResolvers;
+import org.hibernate.query.sqm.produce.function.StandardFunctionReturnTypeResolvers;
+import org.hibernate.sql.ast.SqlAstTranslator;
+import org.hibernate.sql.ast.spi.SqlAppender;
+import org.hibernate.sql.ast.tree.SqlAstNode;
+import org.hibernate.sql.ast.tree.expression.ColumnReference;
+import org.hibernate.sql.ast.tree.expression.Expression;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.BasicTypeRegistry;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.util.List;
+
+/**
+ * PostgreSQL full-text search operators for criteria queries. The match is rendered with the
+ * {@code @@} operator so that the GIN index on {@code events.search_vector} can serve it.
+ * <p>
+ * The first argument is the event id path, e.g. {@code fts_match(root.get("id"), query)}; only its table
+ * alias is used, to reference the generated {@code search_vector} column. The column is not mapped on
+ * {@link ru.practicum.model.event.Event}, so loading events never transfers it.
+ */
+public class FullTextSearchFunctions implements FunctionContributor {
+
+    public static final String MATCH = "fts_match";
+    public static final String RANK = "fts_rank";
+
+    @Override
+    public void contributeFunctions(FunctionContributions contributions) {
+        BasicTypeRegistry types = contributions.getTypeConfiguration().getBasicTypeRegistry();
+        contributions.getFunctionRegistry().register(MATCH, new SearchVectorFunction(MATCH,
+                types.resolve(StandardBasicTypes.BOOLEAN), "(%s.search_vector @@ to_tsquery('simple', ", "))"));
+        contributions.getFunctionRegistry().register(RANK, new SearchVectorFunction(RANK,
+                types.resolve(StandardBasicTypes.FLOAT), "ts_rank(%s.search_vector, to_tsquery('simple', ", "))"));
+    }
+
+    private static class SearchVectorFunction extends AbstractSqmSelfRenderingFunctionDescriptor {
+
+        private final String prefix;
+        private final String suffix;
+
+        SearchVectorFunction(String name, BasicType<?> type, String prefix, String suffix) {
+            super(name, StandardArgumentsValidators.exactly(2), StandardFunctionReturnTypeResolvers.invariant(type),
+                    StandardFunctionArgumentTypeResolvers.NULL);
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        @Override
+        public void render(SqlAppender sqlAppender, List<? extends SqlAstNode> arguments,
+                           ReturnableType<?> returnType, SqlAstTranslator<?> translator) {
+            ColumnReference column = ((Expression) arguments.get(0)).getColumnReference();
+            if (column == null || column.getQualifier() == null) {
+                throw new IllegalArgumentException(getName() + " expects a column of the events table first");
+            }
+            sqlAppender.appendSql(prefix.formatted(column.getQualifier()));
+            arguments.get(1).accept(translator);
+            sqlAppender.appendSql(suffix);
+        }
+    }
+}
@@ -1,22 +1,126 @@
 package ru.practicum.config;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
+import ru.practicum.client.CircuitBreakingStatsClient;
+import ru.practicum.client.CoalescingStatsClient;
 import ru.practicum.client.StatsClient;
 import ru.practicum.client.StatsClientImpl;
 
+import java.time.Duration;
+
+/**
+ * HTTP transport of {@link StatsClient}: a pool of keep-alive HTTP/1.1 connections to the stats server,
+ * with every wait bounded so that a slow stats server cannot hold request threads indefinitely.
+ */
 @Configuration
 public class StatsClientConfig {
 
+    /**
+     * All calls go to the one stats server route, so the per-route limit is the total limit.
+     */
+    @Bean
+    public PoolingHttpClientConnectionManager statsConnectionManager(
+            @Value("${stats.client.max-connections:200}") int maxConnections,
+            @Value("${stats.client.connect-timeout-ms:1000}") long connectTimeoutMs,
+            @Value("${stats.client.response-timeout-ms:3000}") long responseTimeoutMs) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        // a connection idle for longer is checked before reuse, in case the server closed it
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(
+            PoolingHttpClientConnectionManager statsConnectionManager,
+            @Value("${stats.client.connection-request-timeout-ms:500}") long connectionRequestTimeoutMs,
+            @Value("${stats.client.response-timeout-ms:3000}") long responseTimeoutMs,
+            @Value("${stats.client.idle-timeout-ms:30000}") long idleTimeoutMs) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(statsConnectionManager)
+                .setDefaultRequestConfig(requestConfig(connectionRequestTimeoutMs, responseTimeoutMs))
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeoutMs))
+                .evictExpiredConnections()
+                .build();
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
     }
 
+    /**
+     * Publishes {@code httpcomponents.httpclient.pool.*} gauges: leased, available and pending connections.
+     */
     @Bean
-    public StatsClient statsClient(RestTemplate restTemplate, @Value("${stats.client.base-url}") String baseUrl) {
-        return new StatsClientImpl(restTemplate, baseUrl);
+    public MeterBinder statsConnectionPoolMetrics(PoolingHttpClientConnectionManager statsConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(statsConnectionManager, "stats-server");
+    }
+
+    /**
+     * Concurrent lookups that differ at most in a slightly later or earlier end are merged before the breaker,
+     * so they count as one call.
+     * Breaker settings are under {@code resilience4j.circuitbreaker.instances.stats-server} for lookups and
+     * {@code stats-server-hits} for hit shipping.
+     */
+    @Bean
+    public StatsClient statsClient(RestTemplate restTemplate,
+                                   PoolingHttpClientConnectionManager statsConnectionManager,
+                                   CircuitBreakerRegistry circuitBreakerRegistry,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${stats.client.base-url}") String baseUrl,
+                                   @Value("${stats.client.post-query-threshold:100}") int postQueryThreshold,
+                                   @Value("${stats.client.coalescing-tolerance-ms:2000}") long coalescingToleranceMs,
+                                   @Value("${stats.client.connection-request-timeout-ms:500}")
+                                   long connectionRequestTimeoutMs,
+                                   @Value("${stats.client.stream-response-timeout-ms:300000}")
+                                   long streamResponseTimeoutMs) {
+        StatsClient breaking = new CircuitBreakingStatsClient(
+                new StatsClientImpl(restTemplate, streamRestTemplate(statsConnectionManager,
+                        connectionRequestTimeoutMs, streamResponseTimeoutMs), baseUrl, postQueryThreshold),
+                circuitBreakerRegistry.circuitBreaker("stats-server"),
+                circuitBreakerRegistry.circuitBreaker("stats-server-hits"));
+        return new CoalescingStatsClient(breaking, meterRegistry.counter("stats.client.coalesced"),
+                Duration.ofMillis(coalescingToleranceMs));
+    }
+
+    /**
+     * Streamed queries, such as the views refresh over the whole history, share the connection pool but wait
+     * up to {@code stats.client.stream-response-timeout-ms} for the server to start and continue the response.
+     * Idle connections are already evicted by the lookup client.
+     */
+    private static RestTemplate streamRestTemplate(PoolingHttpClientConnectionManager statsConnectionManager,
+                                                   long connectionRequestTimeoutMs, long responseTimeoutMs) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(statsConnectionManager)
+                // the pool belongs to the lookup client, which closes it on shutdown
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(requestConfig(connectionRequestTimeoutMs, responseTimeoutMs))
+                .build();
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    private static RequestConfig requestConfig(long connectionRequestTimeoutMs, long responseTimeoutMs) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                .build();
     }
-}
\ No newline at end of file
+}
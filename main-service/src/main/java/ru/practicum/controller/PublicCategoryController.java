@@ -4,11 +4,12 @@ import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.category.CategoryDto;
 import ru.practicum.service.CategoryService;
-
-import java.util.List;
+import ru.practicum.service.cache.ResponseCache;
 
 @RestController
 @RequestMapping("/categories")
@@ -16,9 +17,10 @@ import java.util.List;
 public class PublicCategoryController {
 
     private final CategoryService categoryService;
+    private final ResponseCache responseCache;
 
     @GetMapping
-    public List<CategoryDto> getAllCategories(
+    public ResponseEntity<byte[]> getAllCategories(
             @RequestParam(defaultValue = "0") Integer from,
             @RequestParam(defaultValue = "10") Integer size
     ) {
@@ -27,7 +29,9 @@ public class PublicCategoryController {
         }
 
         Pageable pageable = PageRequest.of(from / size, size);
-        return categoryService.getAllCategories(pageable);
+        byte[] body = responseCache.get(ResponseCache.Region.CATEGORIES, pageable.getPageNumber() + ":" + size,
+                () -> categoryService.getAllCategories(pageable));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @GetMapping("/{id}")
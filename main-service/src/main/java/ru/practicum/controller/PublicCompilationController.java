@@ -1,11 +1,12 @@
 package ru.practicum.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.compilation.CompilationDto;
 import ru.practicum.service.CompilationService;
-
-import java.util.List;
+import ru.practicum.service.cache.ResponseCache;
 
 @RestController
 @RequiredArgsConstructor
@@ -13,12 +14,15 @@ import java.util.List;
 public class PublicCompilationController {
 
     private final CompilationService compilationService;
+    private final ResponseCache responseCache;
 
     @GetMapping
-    public List<CompilationDto> getCompilations(@RequestParam(required = false) Boolean pinned,
-                                                @RequestParam(defaultValue = "0") Integer from,
-                                                @RequestParam(defaultValue = "10") Integer size) {
-        return compilationService.getPublicCompilations(pinned, from, size);
+    public ResponseEntity<byte[]> getCompilations(@RequestParam(required = false) Boolean pinned,
+                                                  @RequestParam(defaultValue = "0") Integer from,
+                                                  @RequestParam(defaultValue = "10") Integer size) {
+        byte[] body = responseCache.get(ResponseCache.Region.COMPILATIONS, pinned + ":" + from / size + ":" + size,
+                () -> compilationService.getPublicCompilations(pinned, from, size));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @GetMapping("/{id}")
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.PositiveOrZero;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.dto.CursorPageDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.EventShortDto;
 import ru.practicum.service.event.PublicEventService;
@@ -40,6 +41,27 @@ public class PublicEventController {
         );
     }
 
+    @GetMapping(params = "cursor")
+    public CursorPageDto<EventShortDto> getEventsAfter(
+            @RequestParam(defaultValue = "") String text,
+            @RequestParam(defaultValue = "") List<Long> categories,
+            @RequestParam(defaultValue = "") Boolean paid,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
+            @RequestParam(defaultValue = "false") Boolean onlyAvailable,
+            @RequestParam(defaultValue = "") String sort,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") @Positive Integer size,
+            HttpServletRequest request) {
+
+        publicEventService.saveHit(request);
+
+        return publicEventService.getPublicEventsAfter(
+                text, categories, paid, rangeStart, rangeEnd,
+                onlyAvailable, sort, cursor, size
+        );
+    }
+
     @GetMapping("/{id}")
     public EventFullDto getEventById(
             @PathVariable Long id,
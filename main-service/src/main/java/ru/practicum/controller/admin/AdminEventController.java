@@ -1,9 +1,11 @@
 package ru.practicum.controller.admin;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.dto.CursorPageDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.request.UpdateEventAdminRequest;
 import ru.practicum.service.event.AdminEventService;
@@ -30,6 +32,19 @@ public class AdminEventController {
         return adminEventService.searchEvents(users, states, categories, rangeStart, rangeEnd, from, size);
     }
 
+    @GetMapping(params = "cursor")
+    public CursorPageDto<EventFullDto> searchAfter(
+            @RequestParam(required = false) List<Long> users,
+            @RequestParam(required = false) List<String> states,
+            @RequestParam(required = false) List<Long> categories,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") @Positive Integer size) {
+
+        return adminEventService.searchEventsAfter(users, states, categories, rangeStart, rangeEnd, cursor, size);
+    }
+
     @PatchMapping("/{eventId}")
     public EventFullDto updateEvent(
             @PathVariable Long eventId,
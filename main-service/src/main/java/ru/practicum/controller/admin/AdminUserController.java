@@ -7,6 +7,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.dto.CursorPageDto;
 import ru.practicum.dto.user.NewUserDto;
 import ru.practicum.dto.user.UserDto;
 import ru.practicum.service.UserService;
@@ -39,6 +40,19 @@ public class AdminUserController {
         return userService.getAllUsers(ids, pageable);
     }
 
+    @GetMapping(params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPageDto<UserDto> getAllUsersAfter(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") Integer size) {
+        if (size <= 0) {
+            throw new ValidationException("Parameter 'size' must be greater than 0.");
+        }
+
+        return userService.getAllUsersAfter(ids, cursor, size);
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteUser(@PathVariable Long id) {
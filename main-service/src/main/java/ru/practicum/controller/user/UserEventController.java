@@ -8,6 +8,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.dto.CursorPageDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.NewEventDto;
 import ru.practicum.dto.request.EventRequestStatusUpdateRequest;
@@ -50,6 +51,19 @@ public class UserEventController {
         return eventService.getUserEvents(userId, pageable);
     }
 
+    @GetMapping(params = "cursor")
+    public CursorPageDto<EventFullDto> getEventsAfter(
+            @PathVariable Long userId,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "10") Integer size) {
+
+        if (size <= 0) {
+            throw new ValidationException("Parameter 'size' must be greater than 0.");
+        }
+        log.info("Getting events for user {} after cursor {}", userId, cursor);
+        return eventService.getUserEventsAfter(userId, cursor, size);
+    }
+
     @GetMapping("/{eventId}")
     public EventFullDto getEvent(@PathVariable Long userId, @PathVariable Long eventId) {
         return eventService.getUserEventById(userId, eventId);
@@ -1,4 +0,0 @@
-package ru.practicum.dto.request;
-
-public record RequestCountDto(Long eventId, Long count) {
-}
\ No newline at end of file
@@ -26,32 +26,37 @@ public class CompilationMapper {
         dto.setPinned(c.getPinned());
         dto.setId(c.getId());
         dto.setEvents(c.getEvents().stream()
-                .map(event -> EventMapper.toEventShortDto(
-                        event, 0L, 0L
-                ))
+                .map(event -> EventMapper.toEventShortDto(event, 0L))
                 .collect(Collectors.toList()));
         return dto;
     }
 
     public static CompilationDto toCompilationDtoWithViews(
             Compilation compilation,
-            Map<Long, Long> viewsMap,
-            Map<Long, Long> confirmedRequestsMap) {
+            Map<Long, Long> viewsMap) {
+        return toCompilationDtoWithViews(compilation, compilation.getEvents(), viewsMap);
+    }
+
+    /**
+     * Maps a compilation with events that were loaded separately, leaving {@code compilation.getEvents()} untouched.
+     */
+    public static CompilationDto toCompilationDtoWithViews(
+            Compilation compilation,
+            List<Event> events,
+            Map<Long, Long> viewsMap) {
 
         CompilationDto dto = new CompilationDto();
         dto.setId(compilation.getId());
         dto.setTitle(compilation.getTitle());
         dto.setPinned(compilation.getPinned());
 
-        List<Event> events = compilation.getEvents();
         if (events.isEmpty()) {
             dto.setEvents(List.of());
         } else {
             dto.setEvents(events.stream()
                     .map(e -> EventMapper.toEventShortDto(
                             e,
-                            viewsMap.getOrDefault(e.getId(), 0L),
-                            confirmedRequestsMap.getOrDefault(e.getId(), 0L)
+                            viewsMap.getOrDefault(e.getId(), 0L)
                     ))
                     .collect(Collectors.toList()));
         }
@@ -26,7 +26,7 @@ public class EventMapper {
         return event;
     }
 
-    public static EventFullDto toEventFullDto(Event event, long views, long confirmedRequests) {
+    public static EventFullDto toEventFullDto(Event event, long views) {
         EventFullDto dto = new EventFullDto();
         dto.setId(event.getId());
         dto.setTitle(event.getTitle());
@@ -41,13 +41,13 @@ public class EventMapper {
         dto.setCreatedOn(event.getCreatedOn());
         dto.setPublishedOn(event.getPublishedOn());
         dto.setViews(views);
-        dto.setConfirmedRequests(confirmedRequests);
+        dto.setConfirmedRequests(event.getConfirmedRequests());
         dto.setCategory(CategoryMapper.toCategoryDto(event.getCategory()));
         dto.setInitiator(UserMapper.toUserShortDto(event.getInitiator()));
         return dto;
     }
 
-    public static EventShortDto toEventShortDto(Event event, long views, long confirmedRequests) {
+    public static EventShortDto toEventShortDto(Event event, long views) {
         EventShortDto dto = new EventShortDto();
         dto.setId(event.getId());
         dto.setTitle(event.getTitle());
@@ -55,7 +55,7 @@ public class EventMapper {
         dto.setEventDate(event.getEventDate());
         dto.setPaid(event.getPaid());
         dto.setViews(views);
-        dto.setConfirmedRequests(confirmedRequests);
+        dto.setConfirmedRequests(event.getConfirmedRequests());
         dto.setCategory(CategoryMapper.toCategoryDto(event.getCategory()));
         dto.setInitiator(UserMapper.toUserShortDto(event.getInitiator()));
         return dto;
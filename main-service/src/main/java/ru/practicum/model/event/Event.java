@@ -9,12 +9,21 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "events")
+@NamedEntityGraph(name = Event.WITH_INITIATOR_AND_CATEGORY, attributeNodes = {
+        @NamedAttributeNode("initiator"),
+        @NamedAttributeNode("category")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @Setter
 @Builder
 public class Event {
+    /**
+     * Everything the event DTOs read, so a page of events maps without a lazy load per row.
+     */
+    public static final String WITH_INITIATOR_AND_CATEGORY = "Event.withInitiatorAndCategory";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -57,6 +66,16 @@ public class Event {
 
     private LocalDateTime publishedOn;
 
+    // maintained only by atomic updates in EventRepository, never written from the entity
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Builder.Default
+    private Long confirmedRequests = 0L;
+
+    // projection of stats-server views, refreshed by EventViewsRefresher and used for sort=VIEWS
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Builder.Default
+    private Long views = 0L;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "initiator_id", nullable = false)
     private User initiator;
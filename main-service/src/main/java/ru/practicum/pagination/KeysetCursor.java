@@ -0,0 +1,68 @@
+package ru.practicum.pagination;
+
+import jakarta.validation.ValidationException;
+import ru.practicum.dto.CursorPageDto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Position after the last row of a page: {@code (eventDate, id)} for listings ordered by event date,
+ * just {@code id} for listings ordered by id. Clients only see it as an opaque URL-safe token.
+ */
+public record KeysetCursor(LocalDateTime eventDate, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static KeysetCursor afterId(Long id) {
+        return new KeysetCursor(null, id);
+    }
+
+    /**
+     * @return the id the next page starts after, {@code 0} for the first page
+     */
+    public static long decodeId(String token) {
+        KeysetCursor cursor = decode(token);
+        return cursor == null || cursor.id() == null ? 0L : cursor.id();
+    }
+
+    public String encode() {
+        String raw = (eventDate == null ? "" : eventDate.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded position, or {@code null} for a blank token, which asks for the first page
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            String date = raw.substring(0, separator);
+            return new KeysetCursor(date.isEmpty() ? null : LocalDateTime.parse(date),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ValidationException("Invalid cursor: " + token);
+        }
+    }
+
+    /**
+     * Cuts the {@code size + 1} rows fetched for a page down to {@code size} and derives the cursor
+     * of the next page from the last row kept, if there are more rows.
+     */
+    public static <T, D> CursorPageDto<D> toPage(List<T> rows, int size,
+                                                  Function<T, KeysetCursor> position,
+                                                  Function<List<T>, List<D>> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<T> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? position.apply(page.get(size - 1)).encode() : null;
+        return new CursorPageDto<>(mapper.apply(page), nextCursor);
+    }
+}
@@ -1,11 +1,36 @@
 package ru.practicum.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.model.Compilation;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
     List<Compilation> findByPinned(Boolean pinned, Pageable pageable);
+
+    List<Compilation> findAllBy(Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"events", "events.initiator", "events.category"})
+    Optional<Compilation> findById(Long id);
+
+    /**
+     * Rows of {@code compilations_events} for the given compilations, read without loading
+     * any {@code Compilation.events} collection.
+     */
+    @Query("SELECT c.id AS compilationId, e.id AS eventId FROM Compilation c JOIN c.events e "
+            + "WHERE c.id IN :compilationIds ORDER BY c.id, e.id")
+    List<EventLink> findEventLinks(@Param("compilationIds") Collection<Long> compilationIds);
+
+    interface EventLink {
+        Long getCompilationId();
+
+        Long getEventId();
+    }
 }
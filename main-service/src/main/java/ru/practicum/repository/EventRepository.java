@@ -1,21 +1,67 @@
 package ru.practicum.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.model.Category;
 import ru.practicum.model.event.Event;
 import ru.practicum.model.event.EventState;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event> {
+    @EntityGraph(Event.WITH_INITIATOR_AND_CATEGORY)
+    @Override
+    Page<Event> findAll(Specification<Event> spec, Pageable pageable);
+
+    @EntityGraph(Event.WITH_INITIATOR_AND_CATEGORY)
+    @Override
+    List<Event> findAllById(Iterable<Long> ids);
+
+    @EntityGraph(Event.WITH_INITIATOR_AND_CATEGORY)
     Page<Event> findByInitiator_Id(Long initiatorId, Pageable pageable);
 
+    @EntityGraph(Event.WITH_INITIATOR_AND_CATEGORY)
+    List<Event> findByInitiator_IdAndIdGreaterThanOrderByIdAsc(Long initiatorId, Long id, Limit limit);
+
+    @EntityGraph(Event.WITH_INITIATOR_AND_CATEGORY)
     Optional<Event> findByIdAndInitiatorId(Long id, Long initiatorId);
 
+    @EntityGraph(Event.WITH_INITIATOR_AND_CATEGORY)
     Optional<Event> findByIdAndState(Long id, EventState eventState);
 
     boolean existsEventByCategory(Category category);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM Event e WHERE e.id = :id")
+    Optional<Event> findByIdForUpdate(@Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = e.confirmedRequests + :delta WHERE e.id = :eventId")
+    int addConfirmedRequests(@Param("eventId") Long eventId, @Param("delta") long delta);
+
+    /**
+     * Takes {@code seats} places if the event still has them, in a single conditional update.
+     *
+     * @return 1 if the seats were taken, 0 if that would exceed the participant limit
+     */
+    @Modifying
+    @Query("""
+            UPDATE Event e SET e.confirmedRequests = e.confirmedRequests + :seats
+            WHERE e.id = :eventId
+              AND (e.participantLimit = 0 OR e.confirmedRequests + :seats <= e.participantLimit)""")
+    int reserveSeats(@Param("eventId") Long eventId, @Param("seats") long seats);
+
+    @Query("SELECT e.confirmedRequests FROM Event e WHERE e.id = :eventId")
+    long findConfirmedRequestsById(@Param("eventId") Long eventId);
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the {@code events.views} projection. Rows whose count did not change are left untouched.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EventViewsRepository {
+
+    private static final String UPDATE_SQL = "UPDATE events SET views = ? WHERE id = ? AND views <> ?";
+    private static final String CLAIM_SQL = """
+            UPDATE event_views_refresh SET refreshed_at = now()
+            WHERE id = 1 AND refreshed_at <= now() - make_interval(secs => ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional
+    public void updateViews(Map<Long, Long> eventIdToViews) {
+        // ordered by id so that concurrent refreshes lock rows in the same order
+        List<Object[]> batch = new TreeMap<>(eventIdToViews).entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey(), e.getValue()})
+                .toList();
+        jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+    }
+
+    /**
+     * Claims the next refresh unless any instance refreshed less than {@code minAge} ago. The row lock makes
+     * instances that try at the same time wait and then find the refresh taken.
+     */
+    @Transactional
+    public boolean claimRefresh(Duration minAge) {
+        return jdbcTemplate.update(CLAIM_SQL, minAge.toMillis() / 1000.0) == 1;
+    }
+}
@@ -1,28 +1,41 @@
 package ru.practicum.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import ru.practicum.dto.request.RequestCountDto;
 import ru.practicum.model.Request;
 import ru.practicum.model.request.RequestStatus;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface RequestRepository extends JpaRepository<Request, Long> {
 
-    long countByEventIdAndStatus(Long eventId, RequestStatus requestStatus);
-
     boolean existsByRequesterIdAndEventId(Long userId, Long eventId);
 
-    @Query("""
-            SELECT new ru.practicum.dto.request.RequestCountDto(r.event.id, COUNT(r))
-            FROM Request r
-            WHERE r.event.id IN :eventIds AND r.status = 'CONFIRMED'
-            GROUP BY r.event.id""")
-    List<RequestCountDto> countConfirmedByEventIds(@Param("eventIds") List<Long> eventIds);
-
     List<Request> findByRequesterId(Long userId);
 
     List<Request> findByEventId(Long eventId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Request r WHERE r.id = :id")
+    Optional<Request> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT r.event.id FROM Request r WHERE r.id = :id")
+    Optional<Long> findEventIdById(@Param("id") Long id);
+
+    /**
+     * Requests of one event only, so that ids of another event's requests are not found.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Request r WHERE r.event.id = :eventId AND r.id IN :ids ORDER BY r.id")
+    List<Request> findAllByEventIdAndIdForUpdate(@Param("eventId") Long eventId, @Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Request r WHERE r.event.id = :eventId AND r.status = :status ORDER BY r.id")
+    List<Request> findByEventIdAndStatusForUpdate(@Param("eventId") Long eventId,
+                                                  @Param("status") RequestStatus status);
 }
@@ -1,5 +1,6 @@
 package ru.practicum.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,4 +12,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsUserByEmail(String email);
 
     Page<User> findAllByIdIn(List<Long> ids, Pageable pageable);
+
+    List<User> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    List<User> findByIdInAndIdGreaterThanOrderByIdAsc(List<Long> ids, Long id, Limit limit);
 }
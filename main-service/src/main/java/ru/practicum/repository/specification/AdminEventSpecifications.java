@@ -19,6 +19,11 @@ public class AdminEventSpecifications {
         return (root, query, cb) -> root.get("state").in(states);
     }
 
+    public static Specification<Event> idAfter(Long id) {
+        if (id == null) return null;
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
     public static Specification<Event> byCategoryIds(List<Long> categoryIds) {
         return EventSpecifications.inCategories(categoryIds);
     }
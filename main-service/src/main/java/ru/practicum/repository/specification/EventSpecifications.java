@@ -1,24 +1,57 @@
 package ru.practicum.repository.specification;
 
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
 import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.config.FullTextSearchFunctions;
 import ru.practicum.model.event.Event;
+import ru.practicum.model.event.EventState;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.regex.Pattern;
 
 public class EventSpecifications {
 
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
     public static Specification<Event> isPublished() {
-        return (root, query, cb) -> cb.equal(root.get("state"), "PUBLISHED");
+        // a literal rather than a bind parameter, so the planner can use the partial indexes on published events
+        return (root, query, cb) -> cb.equal(root.get("state"), cb.literal(EventState.PUBLISHED));
     }
 
     public static Specification<Event> hasText(String text) {
-        if (text == null || text.isBlank()) return null;
-        String pattern = "%" + text.toLowerCase() + "%";
-        return (root, query, cb) -> cb.or(
-                cb.like(cb.lower(root.get("annotation")), pattern),
-                cb.like(cb.lower(root.get("description")), pattern)
-        );
+        String tsQuery = toPrefixTsQuery(text);
+        if (tsQuery == null) return null;
+        return (root, query, cb) -> cb.isTrue(cb.function(FullTextSearchFunctions.MATCH, Boolean.class,
+                root.get("id"), ((HibernateCriteriaBuilder) cb).value(tsQuery)));
+    }
+
+    /**
+     * Orders by full-text relevance, best match first. Adds no predicate of its own and is meant
+     * to be combined with {@link #hasText} for an unsorted page request.
+     */
+    public static Specification<Event> orderByRelevance(String text) {
+        String tsQuery = toPrefixTsQuery(text);
+        if (tsQuery == null) return null;
+        return (root, query, cb) -> {
+            query.orderBy(
+                    cb.desc(cb.function(FullTextSearchFunctions.RANK, Float.class,
+                            root.get("id"), ((HibernateCriteriaBuilder) cb).value(tsQuery))),
+                    cb.asc(root.get("id"))
+            );
+            return null;
+        };
+    }
+
+    /**
+     * Keyset condition for listings ordered by {@code (eventDate, id)}: rows strictly after the given pair.
+     * The redundant {@code eventDate >= ?} lets the planner start the index range at the cursor.
+     */
+    public static Specification<Event> afterEventDateAndId(LocalDateTime eventDate, Long id) {
+        if (eventDate == null || id == null) return null;
+        return (root, query, cb) -> cb.and(
+                cb.greaterThanOrEqualTo(root.get("eventDate"), eventDate),
+                cb.or(cb.greaterThan(root.get("eventDate"), eventDate), cb.greaterThan(root.get("id"), id)));
     }
 
     public static Specification<Event> inCategories(List<Long> categoryIds) {
@@ -40,4 +73,21 @@ public class EventSpecifications {
         if (rangeEnd == null) return null;
         return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("eventDate"), rangeEnd);
     }
+
+    // every word of the input has to match the start of a word in the event: "conc jaz" finds "Jazz concert"
+    private static String toPrefixTsQuery(String text) {
+        if (text == null || text.isBlank()) return null;
+        List<String> words = WORD.matcher(text.toLowerCase()).results()
+                .map(match -> match.group() + ":*")
+                .toList();
+        return words.isEmpty() ? null : String.join(" & ", words);
+    }
+
+    public static Specification<Event> isAvailable(Boolean onlyAvailable) {
+        if (onlyAvailable == null || !onlyAvailable) return null;
+        return (root, query, cb) -> cb.or(
+                cb.equal(root.get("participantLimit"), 0),
+                cb.lessThan(root.get("confirmedRequests"), root.get("participantLimit").as(Long.class))
+        );
+    }
 }
\ No newline at end of file
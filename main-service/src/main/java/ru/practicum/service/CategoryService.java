@@ -12,6 +12,7 @@ import ru.practicum.mapper.CategoryMapper;
 import ru.practicum.model.Category;
 import ru.practicum.repository.CategoryRepository;
 import ru.practicum.repository.EventRepository;
+import ru.practicum.service.cache.ResponseCache;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -23,6 +24,7 @@ public class CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final EventRepository eventRepository;
+    private final ResponseCache responseCache;
 
     @Transactional
     public CategoryDto createCategory(NewCategoryDto newCategoryDto) {
@@ -32,6 +34,7 @@ public class CategoryService {
 
         Category category = CategoryMapper.toCategory(newCategoryDto);
         Category saved = categoryRepository.save(category);
+        responseCache.invalidate(ResponseCache.Region.CATEGORIES);
         return CategoryMapper.toCategoryDto(saved);
     }
 
@@ -48,6 +51,9 @@ public class CategoryService {
 
         category.setName(newCategoryDto.getName());
         Category saved = categoryRepository.save(category);
+        responseCache.invalidate(ResponseCache.Region.CATEGORIES);
+        // compilations embed the category of each event
+        responseCache.invalidate(ResponseCache.Region.COMPILATIONS);
         return CategoryMapper.toCategoryDto(saved);
     }
 
@@ -59,6 +65,7 @@ public class CategoryService {
             throw new ConflictException("Category is not empty");
         }
         categoryRepository.delete(category);
+        responseCache.invalidate(ResponseCache.Region.CATEGORIES);
     }
 
     public List<CategoryDto> getAllCategories(Pageable pageable) {
@@ -4,6 +4,7 @@ import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.dto.compilation.CompilationDto;
@@ -15,9 +16,14 @@ import ru.practicum.model.Compilation;
 import ru.practicum.model.event.Event;
 import ru.practicum.repository.CompilationRepository;
 import ru.practicum.repository.EventRepository;
+import ru.practicum.service.cache.ResponseCache;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +34,7 @@ public class CompilationService {
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
     private final StatsService statsService;
+    private final ResponseCache responseCache;
 
     @Transactional
     public CompilationDto create(NewCompilationDto dto) {
@@ -35,6 +42,7 @@ public class CompilationService {
                 eventRepository.findAllById(dto.getEvents());
         Compilation compilation = CompilationMapper.toCompilation(dto, events);
         Compilation saved = compilationRepository.save(compilation);
+        responseCache.invalidate(ResponseCache.Region.COMPILATIONS);
         return CompilationMapper.toCompilationDto(saved);
     }
 
@@ -44,6 +52,7 @@ public class CompilationService {
             throw new NotFoundException("Compilation not found");
         }
         compilationRepository.deleteById(compId);
+        responseCache.invalidate(ResponseCache.Region.COMPILATIONS);
     }
 
     @Transactional
@@ -64,6 +73,7 @@ public class CompilationService {
         }
 
         Compilation updated = compilationRepository.save(compilation);
+        responseCache.invalidate(ResponseCache.Region.COMPILATIONS);
         return CompilationMapper.toCompilationDto(updated);
     }
 
@@ -73,27 +83,42 @@ public class CompilationService {
                 .orElseThrow(() -> new NotFoundException("Compilation not found"));
 
         Map<Long, Long> viewsMap = statsService.getViewsCount(compilation.getEvents());
-        Map<Long, Long> confirmedMap = statsService.getConfirmedRequestsCount(compilation.getEvents());
 
-        return CompilationMapper.toCompilationDtoWithViews(compilation, viewsMap, confirmedMap);
+        return CompilationMapper.toCompilationDtoWithViews(compilation, viewsMap);
     }
 
+    /**
+     * Assembles the page in memory from a fixed number of queries: the compilations, their event links,
+     * and the linked events with initiators and categories, instead of a lazy load per compilation and event.
+     */
     public List<CompilationDto> getPublicCompilations(Boolean pinned, Integer from, Integer size) {
-        Pageable pageable = PageRequest.of(from / size, size);
+        Pageable pageable = PageRequest.of(from / size, size, Sort.by("id"));
         List<Compilation> compilations = pinned == null
-                ? compilationRepository.findAll(pageable).getContent()
+                ? compilationRepository.findAllBy(pageable)
                 : compilationRepository.findByPinned(pinned, pageable);
+        if (compilations.isEmpty()) {
+            return List.of();
+        }
 
-        List<Event> allEvents = compilations.stream()
-                .flatMap(c -> c.getEvents().stream())
-                .distinct()
-                .collect(Collectors.toList());
+        List<CompilationRepository.EventLink> links = compilationRepository.findEventLinks(
+                compilations.stream().map(Compilation::getId).collect(Collectors.toList()));
+        Set<Long> eventIds = links.stream()
+                .map(CompilationRepository.EventLink::getEventId)
+                .collect(Collectors.toSet());
+        Map<Long, Event> eventsById = eventIds.isEmpty() ? Map.of() : eventRepository.findAllById(eventIds).stream()
+                .collect(Collectors.toMap(Event::getId, Function.identity()));
+
+        Map<Long, List<Event>> eventsByCompilation = new HashMap<>();
+        for (CompilationRepository.EventLink link : links) {
+            eventsByCompilation.computeIfAbsent(link.getCompilationId(), id -> new ArrayList<>())
+                    .add(eventsById.get(link.getEventId()));
+        }
 
-        Map<Long, Long> viewsMap = statsService.getViewsCount(allEvents);
-        Map<Long, Long> confirmedMap = statsService.getConfirmedRequestsCount(allEvents);
+        Map<Long, Long> viewsMap = statsService.getViewsCount(List.copyOf(eventsById.values()));
 
         return compilations.stream()
-                .map(c -> CompilationMapper.toCompilationDtoWithViews(c, viewsMap, confirmedMap))
+                .map(c -> CompilationMapper.toCompilationDtoWithViews(
+                        c, eventsByCompilation.getOrDefault(c.getId(), List.of()), viewsMap))
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+}
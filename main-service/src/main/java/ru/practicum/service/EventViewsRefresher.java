@@ -0,0 +1,90 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.practicum.repository.EventViewsRepository;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps {@code events.views} in step with the stats server, so that events can be ranked by views
+ * in the database. The whole projection is refreshed with one {@code /stats} call every
+ * {@code stats.views.projection.refresh-interval-ms}; a failed refresh is retried on the next tick.
+ * <p>
+ * Only one instance refreshes per interval: the others find it claimed in {@code event_views_refresh} and skip
+ * their tick. The counts are exact unless {@code stats.views.projection.approximate}, which defaults to
+ * {@code stats.views.approximate}, asks for the stats server's daily sketches: ranking by views then matches the
+ * views the events show. {@code stats.views.projection.enabled=false} turns the refresh off.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.views.projection.enabled", havingValue = "true", matchIfMissing = true)
+public class EventViewsRefresher implements SmartLifecycle {
+
+    private final StatsService statsService;
+    private final EventViewsRepository eventViewsRepository;
+    private final long refreshIntervalMs;
+    private final boolean approximate;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public EventViewsRefresher(StatsService statsService,
+                               EventViewsRepository eventViewsRepository,
+                               @Value("${stats.views.projection.refresh-interval-ms:60000}") long refreshIntervalMs,
+                               @Value("${stats.views.projection.approximate:${stats.views.approximate:false}}")
+                               boolean approximate) {
+        this.statsService = statsService;
+        this.eventViewsRepository = eventViewsRepository;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.approximate = approximate;
+    }
+
+    public void refresh() {
+        // a tenth of the interval of slack, so that a slightly early tick of the same instance still refreshes
+        if (!eventViewsRepository.claimRefresh(Duration.ofMillis(refreshIntervalMs - refreshIntervalMs / 10))) {
+            log.debug("Event views were refreshed recently by another instance");
+            return;
+        }
+        Map<Long, Long> views = statsService.getAllEventViews(approximate);
+        eventViewsRepository.updateViews(views);
+        log.debug("Refreshed views of {} events", views.size());
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "event-views-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshSafely, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh event views: {}", e.getMessage());
+        }
+    }
+}
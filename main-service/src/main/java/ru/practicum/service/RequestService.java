@@ -20,7 +20,9 @@ import ru.practicum.repository.RequestRepository;
 import ru.practicum.repository.UserRepository;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -53,9 +55,8 @@ public class RequestService {
             throw new ConflictException("Request already exists");
         }
 
-        // limit
-        long confirmed = requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED);
-        if (event.getParticipantLimit() > 0 && confirmed >= event.getParticipantLimit()) {
+        // limit; only a fast-path check, the seat itself is taken by reserveSeats below
+        if (event.getParticipantLimit() > 0 && event.getConfirmedRequests() >= event.getParticipantLimit()) {
             throw new ConflictException("Participant limit reached");
         }
 
@@ -72,17 +73,29 @@ public class RequestService {
         }
 
         Request saved = requestRepository.save(request);
+        // seat goes last so that the event row stays locked only until commit
+        if (saved.getStatus() == RequestStatus.CONFIRMED && eventRepository.reserveSeats(eventId, 1) == 0) {
+            throw new ConflictException("Participant limit reached");
+        }
         return RequestMapper.toDto(saved);
     }
 
     @Transactional
     public ParticipationRequestDto cancelRequest(Long userId, Long requestId) {
-        Request request = requestRepository.findById(requestId)
+        // the event row first, then the request, in the same order as updateRequests, so the two never deadlock
+        Long eventId = requestRepository.findEventIdById(requestId)
+                .orElseThrow(() -> new NotFoundException("Request not found"));
+        eventRepository.findByIdForUpdate(eventId)
+                .orElseThrow(() -> new NotFoundException("Event with id=" + eventId + " not found"));
+        Request request = requestRepository.findByIdForUpdate(requestId)
                 .orElseThrow(() -> new NotFoundException("Request not found"));
         if (!request.getRequester().getId().equals(userId)) {
             throw new ForbiddenException("Not your request");
         }
         if (request.getStatus() == RequestStatus.CONFIRMED || request.getStatus() == RequestStatus.PENDING) {
+            if (request.getStatus() == RequestStatus.CONFIRMED) {
+                eventRepository.addConfirmedRequests(eventId, -1);
+            }
             request.setStatus(RequestStatus.CANCELED);
             return RequestMapper.toDto(requestRepository.save(request));
         }
@@ -110,30 +123,36 @@ public class RequestService {
     public EventRequestStatusUpdateResult updateRequests(
             Long userId, Long eventId, EventRequestStatusUpdateRequest update) {
 
-        Event event = eventRepository.findById(eventId)
+        // moderation of one event is serialized, so auto-rejection never races another confirmation
+        Event event = eventRepository.findByIdForUpdate(eventId)
                 .orElseThrow(() -> new NotFoundException("Event with id=" + eventId + " not found"));
         if (!event.getInitiator().getId().equals(userId)) {
             throw new ForbiddenException("Not your event");
         }
 
-        List<Request> requests = requestRepository.findAllById(update.getRequestIds());
+        // row locks keep a concurrent cancel of the same requests from skewing the counter
+        Set<Long> requestIds = new HashSet<>(update.getRequestIds());
+        List<Request> requests = requestRepository.findAllByEventIdAndIdForUpdate(eventId, requestIds);
+        if (requests.size() != requestIds.size()) {
+            throw new NotFoundException("Not all requests with ids=" + requestIds + " belong to event with id="
+                    + eventId);
+        }
         List<ParticipationRequestDto> confirmed = new ArrayList<>();
         List<ParticipationRequestDto> rejected = new ArrayList<>();
 
-        long confirmedCount = requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED);
-        int limit = event.getParticipantLimit();
-
         for (Request req : requests) {
             if (req.getStatus() != RequestStatus.PENDING) {
                 throw new ConflictException("Only PENDING requests can be updated");
             }
+        }
 
-            if ("CONFIRMED".equals(update.getStatus())) {
-                if (limit > 0 && confirmedCount >= limit) {
-                    throw new ConflictException("Participant limit reached");
-                }
+        boolean confirm = "CONFIRMED".equals(update.getStatus());
+        if (confirm && !requests.isEmpty() && eventRepository.reserveSeats(eventId, requests.size()) == 0) {
+            throw new ConflictException("Participant limit reached");
+        }
+        for (Request req : requests) {
+            if (confirm) {
                 req.setStatus(RequestStatus.CONFIRMED);
-                confirmedCount++;
                 confirmed.add(RequestMapper.toDto(req));
             } else {
                 req.setStatus(RequestStatus.REJECTED);
@@ -141,10 +160,10 @@ public class RequestService {
             }
         }
 
-        if (limit > 0 && confirmedCount >= limit) {
-            List<Request> pending = requestRepository.findByEventId(eventId).stream()
-                    .filter(r -> r.getStatus() == RequestStatus.PENDING)
-                    .collect(Collectors.toList());
+        int limit = event.getParticipantLimit();
+        if (limit > 0 && eventRepository.findConfirmedRequestsById(eventId) >= limit) {
+            List<Request> pending = requestRepository.findByEventIdAndStatusForUpdate(eventId,
+                    RequestStatus.PENDING);
             for (Request p : pending) {
                 p.setStatus(RequestStatus.REJECTED);
                 rejected.add(RequestMapper.toDto(p));
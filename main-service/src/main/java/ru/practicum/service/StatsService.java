@@ -1,55 +1,155 @@
 package ru.practicum.service;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import ru.practicum.client.StatsClient;
 import ru.practicum.dto.ViewStats;
-import ru.practicum.dto.request.RequestCountDto;
 import ru.practicum.model.event.Event;
-import ru.practicum.repository.RequestRepository;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+/**
+ * View counts are cached per event for {@code stats.views.cache.expire-after-write-ms}.
+ * Misses of one call are fetched from the stats server in a single request, and callers asking
+ * for an event that is already being loaded wait for that load instead of starting another one.
+ * <p>
+ * A caller waits at most {@code stats.views.deadline-ms} for that fetch. Past the deadline the events
+ * that are not cached yet are reported without views; the fetch carries on in the background and
+ * fills the cache for later calls.
+ * <p>
+ * When the stats server fails, or the circuit breaker in front of it is open, views fall back to the last
+ * values ever fetched for those events, or 0, and the HTTP response is marked with {@value #STALE_VIEWS_HEADER}.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class StatsService {
+    public static final String STALE_VIEWS_HEADER = "X-Views-Stale";
+    private static final LocalDateTime STATS_START = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final Pattern EVENT_URI = Pattern.compile("/events/(\\d+)");
+
     private final StatsClient statsClient;
-    private final RequestRepository requestRepository;
+    private final boolean approximateViews;
+    private final long deadlineMs;
+    private final ExecutorService loadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AsyncLoadingCache<Long, Long> viewsCache;
+    private final Cache<Long, Long> lastKnownViews;
+    private final Counter deadlineExceededCounter;
+    private final Counter staleCounter;
+
+    public StatsService(StatsClient statsClient,
+                        MeterRegistry meterRegistry,
+                        @Value("${stats.views.approximate:false}") boolean approximateViews,
+                        @Value("${stats.views.cache.max-size:10000}") long cacheMaxSize,
+                        @Value("${stats.views.cache.expire-after-write-ms:30000}") long cacheExpireAfterWriteMs,
+                        @Value("${stats.views.deadline-ms:1000}") long deadlineMs) {
+        this.statsClient = statsClient;
+        this.approximateViews = approximateViews;
+        this.deadlineMs = deadlineMs;
+        this.viewsCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofMillis(cacheExpireAfterWriteMs))
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync(new ViewsLoader());
+        this.lastKnownViews = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, viewsCache, "event.views");
+        this.deadlineExceededCounter = meterRegistry.counter("event.views.deadline.exceeded");
+        this.staleCounter = meterRegistry.counter("event.views.stale");
+    }
 
-    public Map<Long, Long> getConfirmedRequestsCount(List<Event> events) {
+    @PreDestroy
+    void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    public Map<Long, Long> getViewsCount(List<Event> events) {
         if (events.isEmpty()) {
             return Map.of();
         }
 
-        List<Long> ids = events.stream().map(Event::getId).toList();
-
-        List<RequestCountDto> results = requestRepository.countConfirmedByEventIds(ids);
+        Set<Long> ids = events.stream().map(Event::getId).collect(Collectors.toSet());
+        CompletableFuture<Map<Long, Long>> views = viewsCache.getAll(ids);
+        try {
+            return views.get(deadlineMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            deadlineExceededCounter.increment();
+            log.warn("Views of {} events not loaded within {} ms, showing last known views", ids.size(), deadlineMs);
+            return staleViews(ids);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return staleViews(ids);
+        } catch (ExecutionException e) {
+            log.warn("Views of {} events not loaded, showing last known views: {}", ids.size(), e.getCause().toString());
+            return staleViews(ids);
+        }
+    }
 
-        return results.stream()
-                .collect(Collectors.toMap(RequestCountDto::eventId, RequestCountDto::count));
+    /**
+     * Views of every event that has been viewed at all, fetched with a single streamed {@code /stats} call:
+     * rows of other uris are dropped as they arrive instead of being collected first.
+     */
+    public Map<Long, Long> getAllEventViews(boolean approximate) {
+        Map<Long, Long> eventIdToViews = new HashMap<>();
+        statsClient.streamStats(STATS_START, LocalDateTime.now(), null, true, approximate, stat -> {
+            Matcher matcher = EVENT_URI.matcher(stat.getUri());
+            if (matcher.matches()) {
+                eventIdToViews.merge(Long.valueOf(matcher.group(1)), stat.getHits(), Long::max);
+            }
+        });
+        return eventIdToViews;
     }
 
-    public Map<Long, Long> getViewsCount(List<Event> events) {
-        if (events.isEmpty()) {
-            return Map.of();
+    private Map<Long, Long> staleViews(Set<Long> ids) {
+        staleCounter.increment();
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && attributes.getResponse() != null) {
+            attributes.getResponse().setHeader(STALE_VIEWS_HEADER, "true");
         }
 
-        List<String> uris = events.stream()
-                .map(event -> "/events/" + event.getId())
+        Map<Long, Long> views = new HashMap<>(lastKnownViews.getAllPresent(ids));
+        views.putAll(viewsCache.synchronous().getAllPresent(ids));
+        return views;
+    }
+
+    private Map<Long, Long> fetchViews(Set<? extends Long> ids) {
+        List<String> uris = ids.stream()
+                .map(id -> "/events/" + id)
                 .collect(Collectors.toList());
 
         LocalDateTime now = LocalDateTime.now();
         List<ViewStats> stats = statsClient.getStats(
-                LocalDateTime.of(2000, 1, 1, 0, 0),
+                STATS_START,
                 now,
                 uris,
-                true
+                true,
+                approximateViews
         );
 
         Map<String, Long> uriToHits = stats.stream()
@@ -60,11 +160,24 @@ public class StatsService {
                 ));
 
         Map<Long, Long> eventIdToViews = new HashMap<>();
-        for (Event event : events) {
-            String uri = "/events/" + event.getId();
-            eventIdToViews.put(event.getId(), uriToHits.getOrDefault(uri, 0L));
+        for (Long id : ids) {
+            eventIdToViews.put(id, uriToHits.getOrDefault("/events/" + id, 0L));
         }
+        lastKnownViews.putAll(eventIdToViews);
 
         return eventIdToViews;
     }
+
+    private class ViewsLoader implements CacheLoader<Long, Long> {
+
+        @Override
+        public Long load(Long id) {
+            return fetchViews(Set.of(id)).get(id);
+        }
+
+        @Override
+        public Map<Long, Long> loadAll(Set<? extends Long> ids) {
+            return fetchViews(ids);
+        }
+    }
 }
@@ -1,14 +1,17 @@
 package ru.practicum.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.CursorPageDto;
 import ru.practicum.dto.user.NewUserDto;
 import ru.practicum.dto.user.UserDto;
 import ru.practicum.exception.ConflictException;
 import ru.practicum.mapper.UserMapper;
 import ru.practicum.model.User;
+import ru.practicum.pagination.KeysetCursor;
 import ru.practicum.repository.UserRepository;
 
 import java.util.List;
@@ -42,6 +45,16 @@ public class UserService {
                 .collect(Collectors.toList());
     }
 
+    public CursorPageDto<UserDto> getAllUsersAfter(List<Long> ids, String cursor, int size) {
+        long afterId = KeysetCursor.decodeId(cursor);
+        Limit limit = Limit.of(size + 1);
+        List<User> users = ids != null && !ids.isEmpty()
+                ? userRepository.findByIdInAndIdGreaterThanOrderByIdAsc(ids, afterId, limit)
+                : userRepository.findByIdGreaterThanOrderByIdAsc(afterId, limit);
+        return KeysetCursor.toPage(users, size, u -> KeysetCursor.afterId(u.getId()),
+                page -> page.stream().map(UserMapper::toUserDto).collect(Collectors.toList()));
+    }
+
     @Transactional
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
@@ -0,0 +1,127 @@
+package ru.practicum.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Public read responses kept as ready-to-send JSON, so a hit costs neither a database round trip
+ * nor serialization. Entries are dropped per {@link Region} by the admin write paths and, at the latest,
+ * after {@code response-cache.expire-after-write-ms}, which bounds how stale embedded view counts get.
+ * <p>
+ * A miss is loaded on the caller's thread outside the cache's locks; callers asking for the same entry
+ * meanwhile wait for that load. Each region has a version that invalidation bumps, and a load that started
+ * under an older version is not kept, so a response read before an admin write cannot outlive it.
+ */
+@Component
+public class ResponseCache {
+
+    public enum Region {
+        COMPILATIONS,
+        CATEGORIES
+    }
+
+    private record Key(Region region, String params) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final AsyncCache<Key, byte[]> cache;
+    private final Map<Region, AtomicLong> versions = new EnumMap<>(Region.class);
+
+    public ResponseCache(ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry,
+                         @Value("${response-cache.max-size:1000}") long maxSize,
+                         @Value("${response-cache.expire-after-write-ms:30000}") long expireAfterWriteMs) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(expireAfterWriteMs))
+                .recordStats()
+                .buildAsync();
+        for (Region region : Region.values()) {
+            versions.put(region, new AtomicLong());
+        }
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "public.responses");
+    }
+
+    /**
+     * @param params everything the response depends on besides the region, e.g. paging parameters
+     * @return the cached JSON, or the serialized result of {@code loader} which is cached for the next call
+     */
+    public byte[] get(Region region, String params, Supplier<?> loader) {
+        Key key = new Key(region, params);
+        AtomicLong version = versions.get(region);
+        long loadVersion = version.get();
+        CompletableFuture<byte[]> own = new CompletableFuture<>();
+        CompletableFuture<byte[]> cached = cache.get(key, (k, executor) -> own);
+        if (cached != own) {
+            return await(cached);
+        }
+
+        try {
+            byte[] body = serialize(loader.get());
+            if (version.get() != loadVersion) {
+                cache.asMap().remove(key, own);
+            }
+            own.complete(body);
+            return body;
+        } catch (RuntimeException e) {
+            cache.asMap().remove(key, own);
+            own.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Drops every response of the region. Inside a transaction this happens after commit,
+     * so a concurrent read cannot cache the state that is being replaced.
+     */
+    public void invalidate(Region region) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(region);
+                }
+            });
+        } else {
+            evict(region);
+        }
+    }
+
+    private void evict(Region region) {
+        versions.get(region).incrementAndGet();
+        cache.asMap().keySet().removeIf(key -> key.region() == region);
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> cached) {
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private byte[] serialize(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize cached response", e);
+        }
+    }
+}
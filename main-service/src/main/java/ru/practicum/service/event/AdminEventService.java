@@ -4,9 +4,11 @@ import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.CursorPageDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.request.UpdateEventAdminRequest;
 import ru.practicum.exception.ConflictException;
@@ -15,10 +17,9 @@ import ru.practicum.mapper.EventMapper;
 import ru.practicum.model.Category;
 import ru.practicum.model.event.Event;
 import ru.practicum.model.event.EventState;
-import ru.practicum.model.request.RequestStatus;
+import ru.practicum.pagination.KeysetCursor;
 import ru.practicum.repository.CategoryRepository;
 import ru.practicum.repository.EventRepository;
-import ru.practicum.repository.RequestRepository;
 import ru.practicum.repository.specification.AdminEventSpecifications;
 import ru.practicum.service.StatsService;
 
@@ -33,7 +34,6 @@ import java.util.stream.Collectors;
 public class AdminEventService {
     private final EventRepository eventRepository;
     private final StatsService statsService;
-    private final RequestRepository requestRepository;
     private final CategoryRepository categoryRepository;
 
     @Transactional
@@ -64,9 +64,8 @@ public class AdminEventService {
 
         Event updated = eventRepository.save(event);
         long views = statsService.getViewsCount(List.of(updated)).getOrDefault(eventId, 0L);
-        long confirmed = requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED);
 
-        return EventMapper.toEventFullDto(updated, views, confirmed);
+        return EventMapper.toEventFullDto(updated, views);
     }
 
     private void handleAdminStateAction(Event event, String stateAction) {
@@ -85,12 +84,33 @@ public class AdminEventService {
     }
 
     public List<EventFullDto> searchEvents(List<Long> userIds, List<String> states, List<Long> categoryIds, LocalDateTime rangeStart, LocalDateTime rangeEnd, Integer from, Integer size) {
+        Specification<Event> spec = searchSpec(userIds, states, categoryIds, rangeStart, rangeEnd);
+        Pageable pageable = PageRequest.of(from / size, size);
+
+        return toFullDtos(eventRepository.findAll(spec, pageable).getContent());
+    }
+
+    /**
+     * Same filters as {@link #searchEvents}, paged by id with a continuation token instead of an offset
+     * and without the count query a {@code Page} needs.
+     */
+    public CursorPageDto<EventFullDto> searchEventsAfter(List<Long> userIds, List<String> states, List<Long> categoryIds, LocalDateTime rangeStart, LocalDateTime rangeEnd, String cursor, int size) {
+        Specification<Event> spec = searchSpec(userIds, states, categoryIds, rangeStart, rangeEnd)
+                .and(AdminEventSpecifications.idAfter(KeysetCursor.decodeId(cursor)));
+
+        List<Event> events = eventRepository.findBy(spec, q -> q
+                .project("initiator", "category")
+                .sortBy(Sort.by("id"))
+                .limit(size + 1)
+                .all());
+        return KeysetCursor.toPage(events, size, e -> KeysetCursor.afterId(e.getId()), this::toFullDtos);
+    }
+
+    private Specification<Event> searchSpec(List<Long> userIds, List<String> states, List<Long> categoryIds, LocalDateTime rangeStart, LocalDateTime rangeEnd) {
         if (rangeEnd != null && rangeStart == null) {
             throw new ValidationException("rangeStart must be specified if rangeEnd is set");
         }
 
-        Pageable pageable = PageRequest.of(from / size, size);
-
         List<EventState> eventStates = null;
         if (states != null && !states.isEmpty()) {
             eventStates = states.stream()
@@ -99,24 +119,19 @@ public class AdminEventService {
                     .collect(Collectors.toList());
         }
 
-        Specification<Event> spec = Specification
+        return Specification
                 .where(AdminEventSpecifications.byUserIds(userIds))
                 .and(AdminEventSpecifications.byStates(eventStates))
                 .and(AdminEventSpecifications.byCategoryIds(categoryIds))
                 .and(AdminEventSpecifications.eventDateAfter(rangeStart))
                 .and(AdminEventSpecifications.eventDateBefore(rangeEnd));
+    }
 
-        List<Event> events = eventRepository.findAll(spec, pageable).getContent();
-
+    private List<EventFullDto> toFullDtos(List<Event> events) {
         Map<Long, Long> viewsMap = statsService.getViewsCount(events);
-        Map<Long, Long> confirmedMap = statsService.getConfirmedRequestsCount(events);
 
         return events.stream()
-                .map(e -> EventMapper.toEventFullDto(
-                        e,
-                        viewsMap.getOrDefault(e.getId(), 0L),
-                        confirmedMap.getOrDefault(e.getId(), 0L)
-                ))
+                .map(e -> EventMapper.toEventFullDto(e, viewsMap.getOrDefault(e.getId(), 0L)))
                 .collect(Collectors.toList());
     }
 }
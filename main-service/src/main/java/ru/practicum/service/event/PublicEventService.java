@@ -8,44 +8,38 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.client.StatsClient;
-import ru.practicum.dto.EndpointHit;
+import ru.practicum.dto.CursorPageDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.EventShortDto;
 import ru.practicum.exception.NotFoundException;
 import ru.practicum.mapper.EventMapper;
 import ru.practicum.model.event.Event;
 import ru.practicum.model.event.EventState;
-import ru.practicum.model.request.RequestStatus;
+import ru.practicum.pagination.KeysetCursor;
 import ru.practicum.repository.EventRepository;
-import ru.practicum.repository.RequestRepository;
 import ru.practicum.repository.specification.EventSpecifications;
 import ru.practicum.service.StatsService;
+import ru.practicum.service.hit.HitRecorder;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Not transactional on purpose: every repository call takes and returns its own connection, so a request
+ * waiting for views from the stats server holds no database connection. The event queries fetch initiator
+ * and category with the event, which is all the mapping needs outside a session.
+ */
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class PublicEventService {
-    private final RequestRepository requestRepository;
     private final EventRepository eventRepository;
-    private final StatsClient statsClient;
     private final StatsService statsService;
+    private final HitRecorder hitRecorder;
 
-    @Transactional
     public void saveHit(HttpServletRequest request) {
-        EndpointHit hit = new EndpointHit();
-        hit.setApp("ewm-main-service");
-        hit.setUri(request.getRequestURI());
-        hit.setIp(request.getRemoteAddr());
-        hit.setTimestamp(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-        statsClient.saveHit(hit);
+        hitRecorder.record(request);
     }
 
     public List<EventShortDto> getPublicEvents(
@@ -59,6 +53,75 @@ public class PublicEventService {
             Integer from,
             Integer size) {
 
+        // relevance only when asked for; without a sort, text search keeps the event date order
+        boolean byRelevance = text != null && !text.isBlank() && "RELEVANCE".equalsIgnoreCase(sort);
+        boolean byViews = !byRelevance && "VIEWS".equalsIgnoreCase(sort);
+        Sort sortConfig;
+        if (byRelevance) {
+            sortConfig = Sort.unsorted();
+        } else if (byViews) {
+            sortConfig = Sort.by(Sort.Direction.DESC, "views").and(Sort.by(Sort.Direction.ASC, "id"));
+        } else {
+            sortConfig = Sort.by(Sort.Direction.ASC, "eventDate");
+        }
+
+        Pageable pageable = PageRequest.of(from / size, size, sortConfig);
+
+        Specification<Event> spec = searchSpec(text, categoryIds, paid, rangeStart, rangeEnd, onlyAvailable)
+                .and(byRelevance ? EventSpecifications.orderByRelevance(text) : null);
+
+        List<Event> events = eventRepository.findAll(spec, pageable).getContent();
+
+        // a views-ranked page shows the same projected counts it was ranked by
+        Map<Long, Long> viewsMap = byViews
+                ? events.stream().collect(Collectors.toMap(Event::getId, Event::getViews))
+                : statsService.getViewsCount(events);
+
+        return events.stream()
+                .map(e -> EventMapper.toEventShortDto(e, viewsMap.getOrDefault(e.getId(), 0L)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Same filters as {@link #getPublicEvents}, paged by {@code (eventDate, id)} with a continuation token
+     * instead of an offset. Only the event date order has a stable key to continue from, so other sorts
+     * are refused in this mode.
+     */
+    public CursorPageDto<EventShortDto> getPublicEventsAfter(
+            String text,
+            List<Long> categoryIds,
+            Boolean paid,
+            LocalDateTime rangeStart,
+            LocalDateTime rangeEnd,
+            Boolean onlyAvailable,
+            String sort,
+            String cursor,
+            int size) {
+
+        if (sort != null && !sort.isBlank() && !"EVENT_DATE".equalsIgnoreCase(sort)) {
+            throw new ValidationException("Only sort=EVENT_DATE is supported with cursor pagination");
+        }
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        Specification<Event> spec = searchSpec(text, categoryIds, paid, rangeStart, rangeEnd, onlyAvailable)
+                .and(after == null ? null : EventSpecifications.afterEventDateAndId(after.eventDate(), after.id()));
+        Sort order = Sort.by(Sort.Direction.ASC, "eventDate").and(Sort.by(Sort.Direction.ASC, "id"));
+
+        List<Event> events = eventRepository.findBy(spec, q -> q
+                .project("initiator", "category")
+                .sortBy(order)
+                .limit(size + 1)
+                .all());
+        return KeysetCursor.toPage(events, size, e -> new KeysetCursor(e.getEventDate(), e.getId()), page -> {
+            Map<Long, Long> viewsMap = statsService.getViewsCount(page);
+            return page.stream()
+                    .map(e -> EventMapper.toEventShortDto(e, viewsMap.getOrDefault(e.getId(), 0L)))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    private Specification<Event> searchSpec(String text, List<Long> categoryIds, Boolean paid,
+                                            LocalDateTime rangeStart, LocalDateTime rangeEnd, Boolean onlyAvailable) {
         if (rangeStart == null) {
             rangeStart = LocalDateTime.now();
         }
@@ -66,39 +129,13 @@ public class PublicEventService {
             throw new ValidationException("rangeEnd must be after rangeStart");
         }
 
-        Sort sortConfig = "VIEWS".equalsIgnoreCase(sort)
-                ? Sort.by(Sort.Direction.DESC, "id")
-                : Sort.by(Sort.Direction.ASC, "eventDate");
-
-        Pageable pageable = PageRequest.of(from / size, size, sortConfig);
-
-        Specification<Event> spec = EventSpecifications.isPublished()
+        return EventSpecifications.isPublished()
                 .and(EventSpecifications.hasText(text))
                 .and(EventSpecifications.inCategories(categoryIds))
                 .and(EventSpecifications.isPaid(paid))
                 .and(EventSpecifications.eventDateAfter(rangeStart))
-                .and(EventSpecifications.eventDateBefore(rangeEnd));
-
-        List<Event> events = eventRepository.findAll(spec, pageable).getContent();
-
-        if (onlyAvailable != null && onlyAvailable) {
-            Map<Long, Long> confirmedMap = statsService.getConfirmedRequestsCount(events);
-            events = events.stream()
-                    .filter(e -> e.getParticipantLimit() == 0 ||
-                            e.getParticipantLimit() > confirmedMap.getOrDefault(e.getId(), 0L))
-                    .collect(Collectors.toList());
-        }
-
-        Map<Long, Long> viewsMap = statsService.getViewsCount(events);
-        Map<Long, Long> confirmedMap = statsService.getConfirmedRequestsCount(events);
-
-        return events.stream()
-                .map(e -> EventMapper.toEventShortDto(
-                        e,
-                        viewsMap.getOrDefault(e.getId(), 0L),
-                        confirmedMap.getOrDefault(e.getId(), 0L)
-                ))
-                .collect(Collectors.toList());
+                .and(EventSpecifications.eventDateBefore(rangeEnd))
+                .and(EventSpecifications.isAvailable(onlyAvailable));
     }
 
     public EventFullDto getPublicEventById(Long id) {
@@ -106,8 +143,7 @@ public class PublicEventService {
                 .orElseThrow(() -> new NotFoundException("Event not found"));
 
         long views = statsService.getViewsCount(List.of(event)).getOrDefault(id, 0L);
-        long confirmed = requestRepository.countByEventIdAndStatus(id, RequestStatus.CONFIRMED);
 
-        return EventMapper.toEventFullDto(event, views, confirmed);
+        return EventMapper.toEventFullDto(event, views);
     }
 }
@@ -2,10 +2,12 @@ package ru.practicum.service.event;
 
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.dto.CursorPageDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.NewEventDto;
 import ru.practicum.dto.request.UpdateEventUserRequest;
@@ -16,6 +18,7 @@ import ru.practicum.model.Category;
 import ru.practicum.model.User;
 import ru.practicum.model.event.Event;
 import ru.practicum.model.event.EventState;
+import ru.practicum.pagination.KeysetCursor;
 import ru.practicum.repository.CategoryRepository;
 import ru.practicum.repository.EventRepository;
 import ru.practicum.repository.UserRepository;
@@ -48,19 +51,24 @@ public class UserEventService {
 
         Event event = EventMapper.toEvent(dto, initiator, category);
         Event savedEvent = eventRepository.save(event);
-        return EventMapper.toEventFullDto(savedEvent, 0L, 0L);
+        return EventMapper.toEventFullDto(savedEvent, 0L);
     }
 
     public List<EventFullDto> getUserEvents(Long userId, Pageable pageable) {
         Page<Event> page = eventRepository.findByInitiator_Id(userId, pageable);
-        List<Event> events = page.getContent();
+        return toFullDtos(page.getContent());
+    }
 
-        Map<Long, Long> confirmedMap = statsService.getConfirmedRequestsCount(events);
-        Map<Long, Long> viewsMap = statsService.getViewsCount(events);
+    public CursorPageDto<EventFullDto> getUserEventsAfter(Long userId, String cursor, int size) {
+        List<Event> events = eventRepository.findByInitiator_IdAndIdGreaterThanOrderByIdAsc(
+                userId, KeysetCursor.decodeId(cursor), Limit.of(size + 1));
+        return KeysetCursor.toPage(events, size, e -> KeysetCursor.afterId(e.getId()), this::toFullDtos);
+    }
 
+    private List<EventFullDto> toFullDtos(List<Event> events) {
+        Map<Long, Long> viewsMap = statsService.getViewsCount(events);
         return events.stream()
-                .map(e -> EventMapper.toEventFullDto(e, viewsMap.getOrDefault(e.getId(), 0L),
-                        confirmedMap.getOrDefault(e.getId(), 0L)))
+                .map(e -> EventMapper.toEventFullDto(e, viewsMap.getOrDefault(e.getId(), 0L)))
                 .collect(Collectors.toList());
     }
 
@@ -69,8 +77,7 @@ public class UserEventService {
                 .orElseThrow(() -> new NotFoundException("Event not found"));
 
         long views = statsService.getViewsCount(List.of(event)).getOrDefault(eventId, 0L);
-        long confirmed = statsService.getConfirmedRequestsCount(List.of(event)).getOrDefault(eventId, 0L);
-        return EventMapper.toEventFullDto(event, views, confirmed);
+        return EventMapper.toEventFullDto(event, views);
     }
 
     @Transactional
@@ -105,9 +112,8 @@ public class UserEventService {
 
         Event updated = eventRepository.save(event);
         long views = statsService.getViewsCount(List.of(updated)).getOrDefault(eventId, 0L);
-        long confirmed = statsService.getConfirmedRequestsCount(List.of(updated)).getOrDefault(eventId, 0L);
 
-        return EventMapper.toEventFullDto(updated, views, confirmed);
+        return EventMapper.toEventFullDto(updated, views);
     }
 
     private void handleUserStateAction(Event event, String stateAction) {
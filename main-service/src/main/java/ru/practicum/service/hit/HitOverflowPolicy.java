@@ -0,0 +1,6 @@
+package ru.practicum.service.hit;
+
+public enum HitOverflowPolicy {
+    DROP_NEWEST,
+    DROP_OLDEST
+}
@@ -0,0 +1,200 @@
+package ru.practicum.service.hit;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.practicum.client.StatsClient;
+import ru.practicum.dto.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records endpoint hits without blocking the request thread.
+ * <p>
+ * URI, IP and timestamp are captured on the calling thread and put into a bounded local buffer.
+ * A background sender ships the buffer to the stats server in batches via {@link StatsClient#saveHits}.
+ * When the buffer is full, {@link HitOverflowPolicy} decides which hit is lost; a failed batch is put
+ * back at the head of the buffer. After a failure the sender backs off, doubling the pause between
+ * attempts up to {@code stats.hits.max-backoff-ms}, so an unreachable server or an open circuit breaker
+ * is not retried and logged every flush interval. {@link #stop()} makes one last attempt regardless.
+ */
+@Slf4j
+@Component
+public class HitRecorder implements SmartLifecycle {
+
+    private static final String APP = "ewm-main-service";
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final StatsClient statsClient;
+    private final BlockingDeque<PendingHit> buffer;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long maxBackoffMs;
+    private final HitOverflowPolicy overflowPolicy;
+
+    private final Counter recordedCounter;
+    private final Counter droppedCounter;
+    private final Counter sendFailuresCounter;
+    private final Timer deliveryDelayTimer;
+
+    private ScheduledExecutorService sender;
+    private volatile boolean running;
+
+    // only touched by the sender thread, and by stop() once that thread has finished
+    private int consecutiveFailures;
+    private long nextAttemptAt;
+
+    public HitRecorder(StatsClient statsClient,
+                       MeterRegistry meterRegistry,
+                       @Value("${stats.hits.buffer-capacity:10000}") int bufferCapacity,
+                       @Value("${stats.hits.batch-size:200}") int batchSize,
+                       @Value("${stats.hits.flush-interval-ms:500}") long flushIntervalMs,
+                       @Value("${stats.hits.max-backoff-ms:30000}") long maxBackoffMs,
+                       @Value("${stats.hits.overflow-policy:DROP_OLDEST}") HitOverflowPolicy overflowPolicy) {
+        this.statsClient = statsClient;
+        this.buffer = new LinkedBlockingDeque<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.overflowPolicy = overflowPolicy;
+
+        Gauge.builder("stats.hits.buffered", buffer, BlockingDeque::size)
+                .description("Hits waiting to be sent to the stats server")
+                .register(meterRegistry);
+        this.recordedCounter = meterRegistry.counter("stats.hits.recorded");
+        this.droppedCounter = meterRegistry.counter("stats.hits.dropped");
+        this.sendFailuresCounter = meterRegistry.counter("stats.hits.send.failures");
+        this.deliveryDelayTimer = Timer.builder("stats.hits.delivery.delay")
+                .description("Time between capturing a hit and handing it to the stats server")
+                .register(meterRegistry);
+    }
+
+    public void record(HttpServletRequest request) {
+        EndpointHit hit = new EndpointHit();
+        hit.setApp(APP);
+        hit.setUri(request.getRequestURI());
+        hit.setIp(request.getRemoteAddr());
+        hit.setTimestamp(LocalDateTime.now().format(FORMATTER));
+        enqueue(new PendingHit(hit, System.nanoTime()));
+    }
+
+    private void enqueue(PendingHit pending) {
+        recordedCounter.increment();
+        if (buffer.offerLast(pending)) {
+            return;
+        }
+        if (overflowPolicy == HitOverflowPolicy.DROP_OLDEST) {
+            while (!buffer.offerLast(pending)) {
+                if (buffer.pollFirst() != null) {
+                    droppedCounter.increment();
+                }
+            }
+            return;
+        }
+        droppedCounter.increment();
+    }
+
+    private void flush() {
+        while (!buffer.isEmpty()) {
+            List<PendingHit> batch = new ArrayList<>(batchSize);
+            buffer.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                statsClient.saveHits(batch.stream().map(PendingHit::hit).toList());
+            } catch (RuntimeException e) {
+                sendFailuresCounter.increment();
+                requeue(batch);
+                backOff(batch.size(), e);
+                return;
+            }
+            consecutiveFailures = 0;
+            long now = System.nanoTime();
+            batch.forEach(p -> deliveryDelayTimer.record(now - p.capturedAt(), TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private void backOff(int batchSize, RuntimeException e) {
+        consecutiveFailures++;
+        long backoffMs = Math.min(maxBackoffMs, flushIntervalMs << Math.min(consecutiveFailures, 20));
+        nextAttemptAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+        if (e instanceof CallNotPermittedException) {
+            log.debug("Stats server circuit breaker is open, keeping {} hits for {} ms", batchSize, backoffMs);
+        } else {
+            log.warn("Failed to send {} hits to stats server, retrying in {} ms: {}",
+                    batchSize, backoffMs, e.getMessage());
+        }
+    }
+
+    private void requeue(List<PendingHit> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (!buffer.offerFirst(batch.get(i))) {
+                droppedCounter.increment(i + 1);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        sender = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-hit-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender.scheduleWithFixedDelay(this::flushUnlessBackingOff, flushIntervalMs, flushIntervalMs,
+                TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        sender.shutdown();
+        try {
+            sender.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void flushUnlessBackingOff() {
+        if (consecutiveFailures > 0 && System.nanoTime() - nextAttemptAt < 0) {
+            return;
+        }
+        flushSafely();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Unexpected error while flushing hits", e);
+        }
+    }
+
+    private record PendingHit(EndpointHit hit, long capturedAt) {
+    }
+}
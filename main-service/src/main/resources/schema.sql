@@ -45,4 +45,56 @@ CREATE TABLE IF NOT EXISTS compilations_events (
     compilation_id BIGINT NOT NULL REFERENCES compilations(id) ON DELETE CASCADE,
     event_id BIGINT NOT NULL REFERENCES events(id) ON DELETE CASCADE,
     PRIMARY KEY (compilation_id, event_id)
-);
\ No newline at end of file
+);
+
+-- the counter is filled from requests once, when the column is added; afterwards only EventRepository changes it,
+-- and the ALTER keeps concurrent seat reservations out until the backfill is committed
+DO '
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM information_schema.columns
+                   WHERE table_schema = current_schema() AND table_name = ''events''
+                     AND column_name = ''confirmed_requests'') THEN
+        ALTER TABLE events ADD COLUMN confirmed_requests BIGINT NOT NULL DEFAULT 0;
+        UPDATE events e
+        SET confirmed_requests = c.cnt
+        FROM (SELECT event_id, COUNT(*) AS cnt FROM requests WHERE status = ''CONFIRMED'' GROUP BY event_id) c
+        WHERE e.id = c.event_id;
+    END IF;
+END';
+
+-- public search: published events by date, optionally narrowed to categories
+CREATE INDEX IF NOT EXISTS idx_events_published_event_date ON events (event_date) WHERE state = 'PUBLISHED';
+CREATE INDEX IF NOT EXISTS idx_events_published_category_event_date
+    ON events (category_id, event_date) WHERE state = 'PUBLISHED';
+
+-- admin search, initiator listings and category/user foreign keys
+CREATE INDEX IF NOT EXISTS idx_events_initiator_id ON events (initiator_id);
+CREATE INDEX IF NOT EXISTS idx_events_category_id ON events (category_id);
+CREATE INDEX IF NOT EXISTS idx_events_state_event_date ON events (state, event_date);
+
+CREATE INDEX IF NOT EXISTS idx_requests_event_id_status ON requests (event_id, status);
+CREATE INDEX IF NOT EXISTS idx_requests_requester_id_event_id ON requests (requester_id, event_id);
+
+CREATE INDEX IF NOT EXISTS idx_compilations_events_event_id ON compilations_events (event_id);
+
+-- full-text search over title (weight A), annotation (B) and description (C)
+ALTER TABLE events ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', coalesce(title, '')), 'A')
+        || setweight(to_tsvector('simple', coalesce(annotation, '')), 'B')
+        || setweight(to_tsvector('simple', coalesce(description, '')), 'C')
+) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_events_search_vector ON events USING GIN (search_vector);
+
+-- views projected from the stats server, for sort=VIEWS
+ALTER TABLE events ADD COLUMN IF NOT EXISTS views BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_events_published_views ON events (views DESC, id) WHERE state = 'PUBLISHED';
+
+-- when events.views was last refreshed, so that only one instance refreshes per interval
+CREATE TABLE IF NOT EXISTS event_views_refresh (
+    id INTEGER PRIMARY KEY,
+    refreshed_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+INSERT INTO event_views_refresh (id, refreshed_at) VALUES (1, '1970-01-01') ON CONFLICT (id) DO NOTHING;
@@ -0,0 +1,108 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.client.CoalescingStatsClient;
+import ru.practicum.client.StatsClient;
+import ru.practicum.dto.ViewStats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoalescingStatsClientTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 900_000_000);
+
+    @Mock
+    private StatsClient delegate;
+
+    private final Counter coalescedCounter = new SimpleMeterRegistry().counter("stats.client.coalesced");
+    private final CountDownLatch requestStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseRequest = new CountDownLatch(1);
+    private CoalescingStatsClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = new CoalescingStatsClient(delegate, coalescedCounter, Duration.ofSeconds(2));
+    }
+
+    @Test
+    void getStats_WhenEndIsWithinToleranceOfRunningRequest_ShouldShareIt() throws Exception {
+        // Given
+        when(delegate.getStats(any(), eq(END), anyList(), any(), anyBoolean())).thenAnswer(invocation -> {
+            requestStarted.countDown();
+            assertTrue(releaseRequest.await(10, TimeUnit.SECONDS));
+            return List.of(new ViewStats("ewm-main-service", "/events/1", 7L));
+        });
+
+        // When
+        List<ViewStats> shared;
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<List<ViewStats>> first = executor.submit(
+                    () -> client.getStats(START, END, List.of("/events/1", "/events/2"), true, false));
+            assertTrue(requestStarted.await(10, TimeUnit.SECONDS));
+            // the next second starts 100 ms later: truncating both ends to seconds would not match them
+            Future<List<ViewStats>> second = executor.submit(() -> client.getStats(START, END.plusNanos(200_000_000),
+                    List.of("/events/2", "/events/1"), true, false));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (coalescedCounter.count() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            releaseRequest.countDown();
+            first.get();
+            shared = second.get();
+        }
+
+        // Then
+        assertEquals(1.0, coalescedCounter.count());
+        assertEquals(7L, shared.getFirst().getHits());
+        verify(delegate, times(1)).getStats(any(), any(), anyList(), any(), anyBoolean());
+    }
+
+    @Test
+    void getStats_WhenEndIsBeyondToleranceOfRunningRequest_ShouldSendItsOwn() throws Exception {
+        // Given
+        LocalDateTime laterEnd = END.plusSeconds(5);
+        when(delegate.getStats(any(), eq(END), anyList(), any(), anyBoolean())).thenAnswer(invocation -> {
+            requestStarted.countDown();
+            assertTrue(releaseRequest.await(10, TimeUnit.SECONDS));
+            return List.of(new ViewStats("ewm-main-service", "/events/1", 7L));
+        });
+        when(delegate.getStats(any(), eq(laterEnd), anyList(), any(), anyBoolean()))
+                .thenReturn(List.of(new ViewStats("ewm-main-service", "/events/1", 9L)));
+
+        // When
+        List<ViewStats> later;
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<List<ViewStats>> first = executor.submit(
+                    () -> client.getStats(START, END, List.of("/events/1"), true, false));
+            assertTrue(requestStarted.await(10, TimeUnit.SECONDS));
+            later = client.getStats(START, laterEnd, List.of("/events/1"), true, false);
+            releaseRequest.countDown();
+            assertEquals(7L, first.get().getFirst().getHits());
+        }
+
+        // Then
+        assertEquals(0.0, coalescedCounter.count());
+        assertEquals(9L, later.getFirst().getHits());
+    }
+}
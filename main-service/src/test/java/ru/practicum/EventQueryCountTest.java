@@ -0,0 +1,191 @@
+package ru.practicum;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.dto.compilation.CompilationDto;
+import ru.practicum.dto.event.EventShortDto;
+import ru.practicum.model.Category;
+import ru.practicum.model.Compilation;
+import ru.practicum.model.User;
+import ru.practicum.model.event.Event;
+import ru.practicum.model.event.EventState;
+import ru.practicum.model.event.Location;
+import ru.practicum.repository.CategoryRepository;
+import ru.practicum.repository.CompilationRepository;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.UserRepository;
+import ru.practicum.service.CompilationService;
+import ru.practicum.service.StatsService;
+import ru.practicum.service.event.AdminEventService;
+import ru.practicum.service.event.PublicEventService;
+import ru.practicum.service.event.UserEventService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every event read path maps initiator and category into its DTOs; with lazy associations and
+ * no fetch plan a page of N events costs 2N extra selects. These limits do not depend on N.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class EventQueryCountTest extends EmbeddedPostgresTest {
+
+    private static final int PAGE = 10;
+
+    @MockBean
+    private StatsService statsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private CompilationRepository compilationRepository;
+
+    @Autowired
+    private PublicEventService publicEventService;
+
+    @Autowired
+    private AdminEventService adminEventService;
+
+    @Autowired
+    private UserEventService userEventService;
+
+    @Autowired
+    private CompilationService compilationService;
+
+    private QueryCounter queryCounter;
+    private final List<Long> categoryIds = new ArrayList<>();
+    private final List<Long> initiatorIds = new ArrayList<>();
+    private final List<Event> events = new ArrayList<>();
+    private final List<Event> ownerEvents = new ArrayList<>();
+    private User owner;
+    private Compilation compilation;
+
+    @BeforeAll
+    void seed() {
+        queryCounter = new QueryCounter(entityManagerFactory);
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        owner = userRepository.save(User.builder().name("owner").email("owner-" + suffix + "@example.com").build());
+        for (int i = 0; i < PAGE; i++) {
+            User initiator = userRepository.save(User.builder()
+                    .name("initiator " + i)
+                    .email("initiator-" + i + "-" + suffix + "@example.com")
+                    .build());
+            Category category = categoryRepository.save(Category.builder().name("count " + i + " " + suffix).build());
+            initiatorIds.add(initiator.getId());
+            categoryIds.add(category.getId());
+            events.add(createEvent(initiator, category));
+            ownerEvents.add(createEvent(owner, category));
+        }
+        compilation = compilationRepository.save(Compilation.builder()
+                .title("count " + suffix).pinned(true).events(events).build());
+        compilationRepository.save(Compilation.builder()
+                .title("count owner " + suffix).pinned(true).events(ownerEvents).build());
+    }
+
+    @Test
+    void publicSearch_ShouldNotLoadAssociationsPerEvent() {
+        queryCounter.assertAtMost(2, "public event page", () -> assertEquals(PAGE, publicEventService
+                .getPublicEvents("", categoryIds, null, null, null, false, "EVENT_DATE", 0, PAGE).size()));
+        queryCounter.assertAtMost(1, "public event cursor page", () -> assertEquals(PAGE, publicEventService
+                .getPublicEventsAfter("", categoryIds, null, null, null, false, "", "", PAGE).getItems().size()));
+        queryCounter.assertAtMost(1, "public event", () ->
+                publicEventService.getPublicEventById(events.get(0).getId()));
+    }
+
+    @Test
+    void publicSearch_ByText_ShouldOrderByRelevanceOnlyWhenAsked() {
+        // Given
+        String word = "probe" + UUID.randomUUID().toString().replace("-", "");
+        Event inDescription = createEvent(owner, events.get(0).getCategory(), "Unrelated title",
+                "Description with " + word, LocalDateTime.now().plusDays(1));
+        Event inTitle = createEvent(owner, events.get(0).getCategory(), "Title with " + word,
+                "Unrelated description", LocalDateTime.now().plusDays(2));
+
+        // When
+        List<Long> unsorted = publicEventService.getPublicEvents(word, null, null, null, null, false, "", 0, PAGE)
+                .stream().map(EventShortDto::getId).toList();
+        List<Long> byRelevance = publicEventService
+                .getPublicEvents(word, null, null, null, null, false, "RELEVANCE", 0, PAGE)
+                .stream().map(EventShortDto::getId).toList();
+
+        // Then
+        assertEquals(List.of(inDescription.getId(), inTitle.getId()), unsorted);
+        assertEquals(List.of(inTitle.getId(), inDescription.getId()), byRelevance);
+    }
+
+    @Test
+    void adminSearch_ShouldNotLoadAssociationsPerEvent() {
+        queryCounter.assertAtMost(2, "admin event page", () -> assertEquals(PAGE, adminEventService
+                .searchEvents(initiatorIds, null, null, null, null, 0, PAGE).size()));
+        queryCounter.assertAtMost(1, "admin event cursor page", () -> assertEquals(PAGE, adminEventService
+                .searchEventsAfter(initiatorIds, null, null, null, null, "", PAGE).getItems().size()));
+    }
+
+    @Test
+    void userEvents_ShouldNotLoadAssociationsPerEvent() {
+        queryCounter.assertAtMost(2, "user event page", () -> assertEquals(PAGE, userEventService
+                .getUserEvents(owner.getId(), PageRequest.of(0, PAGE)).size()));
+        queryCounter.assertAtMost(1, "user event cursor page", () -> assertEquals(PAGE, userEventService
+                .getUserEventsAfter(owner.getId(), "", PAGE).getItems().size()));
+        queryCounter.assertAtMost(1, "user event", () ->
+                userEventService.getUserEventById(owner.getId(), ownerEvents.get(0).getId()));
+    }
+
+    @Test
+    void compilation_ShouldNotLoadAssociationsPerEvent() {
+        queryCounter.assertAtMost(1, "compilation", () -> assertEquals(PAGE,
+                compilationService.getPublicCompilationById(compilation.getId()).getEvents().size()));
+    }
+
+    @Test
+    void compilationPage_ShouldLoadInFixedNumberOfQueries() {
+        queryCounter.assertAtMost(3, "compilation page", () -> {
+            List<CompilationDto> page = compilationService.getPublicCompilations(true, 0, PAGE);
+            assertTrue(page.size() >= 2);
+            assertTrue(page.stream().allMatch(c -> c.getEvents().size() == PAGE));
+        });
+    }
+
+    private Event createEvent(User initiator, Category category) {
+        return createEvent(initiator, category, "Counted event", "Description of a counted event",
+                LocalDateTime.now().plusDays(7));
+    }
+
+    private Event createEvent(User initiator, Category category, String title, String description,
+                              LocalDateTime eventDate) {
+        return eventRepository.save(Event.builder()
+                .title(title)
+                .annotation("Annotation of a counted event")
+                .description(description)
+                .eventDate(eventDate)
+                .location(new Location(55.75f, 37.62f))
+                .participantLimit(0)
+                .requestModeration(false)
+                .state(EventState.PUBLISHED)
+                .publishedOn(LocalDateTime.now())
+                .initiator(initiator)
+                .category(category)
+                .build());
+    }
+}
@@ -0,0 +1,278 @@
+package ru.practicum;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.model.event.Event;
+import ru.practicum.model.event.EventState;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.RequestRepository;
+import ru.practicum.repository.specification.AdminEventSpecifications;
+import ru.practicum.repository.specification.EventSpecifications;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs EXPLAIN on the SQL that Hibernate actually generates for the search and request paths,
+ * over enough rows that a sequential scan would be visibly worse than an index.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.EventQueryPlanTest$SqlRecorder")
+class EventQueryPlanTest extends EmbeddedPostgresTest {
+
+    private static final int EVENTS = 50_000;
+    private static final LocalDateTime NOW = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    private long firstUserId;
+    private long firstCategoryId;
+    private long firstEventId;
+
+    @BeforeAll
+    void seed() {
+        firstUserId = jdbcTemplate.queryForObject("""
+                WITH inserted AS (
+                    INSERT INTO users (name, email)
+                    SELECT 'plan user ' || g, 'plan-user-' || g || '@example.com' FROM generate_series(1, 1000) g
+                    RETURNING id)
+                SELECT MIN(id) FROM inserted""", Long.class);
+        firstCategoryId = jdbcTemplate.queryForObject("""
+                WITH inserted AS (
+                    INSERT INTO categories (name) SELECT 'plan category ' || g FROM generate_series(1, 50) g
+                    RETURNING id)
+                SELECT MIN(id) FROM inserted""", Long.class);
+        firstEventId = jdbcTemplate.queryForObject("""
+                WITH inserted AS (
+                    INSERT INTO events (title, annotation, description, event_date, paid, participant_limit,
+                                        state, created_on, initiator_id, category_id)
+                    SELECT 'Event ' || g, 'Annotation ' || g, 'Description ' || g,
+                           ?::timestamp + (g % 1460 - 730) * INTERVAL '1 day',
+                           g % 2 = 0, g % 5 * 10,
+                           (ARRAY['PENDING', 'PUBLISHED', 'CANCELED'])[g % 3 + 1],
+                           ?::timestamp, ? + g % 1000, ? + g % 50
+                    FROM generate_series(1, ?) g
+                    RETURNING id)
+                SELECT MIN(id) FROM inserted""", Long.class, Timestamp.valueOf(NOW), Timestamp.valueOf(NOW),
+                firstUserId, firstCategoryId, EVENTS);
+        jdbcTemplate.update("""
+                INSERT INTO requests (event_id, requester_id, status, created)
+                SELECT ? + g % ?, ? + g % 1000, (ARRAY['PENDING', 'CONFIRMED', 'REJECTED'])[g % 3 + 1], ?::timestamp
+                FROM generate_series(1, 200000) g""",
+                firstEventId, EVENTS, firstUserId, Timestamp.valueOf(NOW));
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @BeforeEach
+    void clearRecordedSql() {
+        SqlRecorder.clear();
+    }
+
+    @Test
+    void publicSearch_ByDate_ShouldUseIndex() {
+        // When
+        String plan = explain(() -> eventRepository.findAll(
+                EventSpecifications.isPublished().and(EventSpecifications.eventDateAfter(NOW)),
+                PageRequest.of(0, 10, Sort.by("eventDate"))),
+                Timestamp.valueOf(NOW), 0, 10);
+
+        // Then
+        assertIndexScanOnly(plan, "events");
+    }
+
+    @Test
+    void publicSearch_AfterCursor_ShouldUseIndexWithoutCount() {
+        // Given
+        LocalDateTime cursorDate = NOW.plusDays(100);
+        long cursorId = firstEventId + 1000;
+
+        Runnable page = () -> eventRepository.findBy(
+                EventSpecifications.isPublished()
+                        .and(EventSpecifications.eventDateAfter(NOW))
+                        .and(EventSpecifications.afterEventDateAndId(cursorDate, cursorId)),
+                q -> q.sortBy(Sort.by("eventDate").and(Sort.by("id"))).limit(11).all());
+
+        // When
+        page.run();
+        List<String> statements = SqlRecorder.drain();
+        String plan = explain(page,
+                Timestamp.valueOf(NOW), Timestamp.valueOf(cursorDate), Timestamp.valueOf(cursorDate), cursorId, 11);
+
+        // Then
+        assertEquals(1, statements.size(), "keyset page must not issue a count query: " + statements);
+        assertIndexScanOnly(plan, "events");
+    }
+
+    @Test
+    void publicSearch_ByCategoriesAndPaid_ShouldUseIndex() {
+        // When
+        String plan = explain(() -> eventRepository.findAll(
+                EventSpecifications.isPublished()
+                        .and(EventSpecifications.inCategories(List.of(firstCategoryId, firstCategoryId + 1)))
+                        .and(EventSpecifications.isPaid(true))
+                        .and(EventSpecifications.eventDateAfter(NOW))
+                        .and(EventSpecifications.eventDateBefore(NOW.plusMonths(1))),
+                PageRequest.of(0, 10, Sort.by("eventDate"))),
+                firstCategoryId, firstCategoryId + 1, true, Timestamp.valueOf(NOW),
+                Timestamp.valueOf(NOW.plusMonths(1)), 0, 10);
+
+        // Then
+        assertIndexScanOnly(plan, "events");
+    }
+
+    @Test
+    void publicSearch_ByViews_ShouldUseIndex() {
+        // When
+        String plan = explain(() -> eventRepository.findAll(
+                EventSpecifications.isPublished(),
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "views").and(Sort.by("id")))),
+                0, 10);
+
+        // Then
+        assertIndexScanOnly(plan, "events");
+    }
+
+    @Test
+    void publicSearch_ByText_ShouldUseFullTextIndex() {
+        // Given
+        String text = "Event 4242";
+        String tsQuery = "event:* & 4242:*";
+
+        // When
+        List<Event> found = new ArrayList<>();
+        String plan = explain(() -> found.addAll(eventRepository.findAll(
+                EventSpecifications.hasText(text).and(EventSpecifications.orderByRelevance(text)),
+                PageRequest.of(0, 20)).getContent()),
+                tsQuery, tsQuery, 0, 20);
+
+        // Then
+        assertIndexScanOnly(plan, "events");
+        assertTrue(plan.contains("idx_events_search_vector"), plan);
+        assertEquals("Event 4242", found.get(0).getTitle());
+        assertTrue(found.stream().allMatch(e -> e.getTitle().startsWith("Event 4242")));
+    }
+
+    @Test
+    void publicSearch_ByText_ShouldMatchWordPrefixesNotSubstrings() {
+        // When
+        long prefix = eventRepository.count(EventSpecifications.hasText("ANNOT"));
+        long substring = eventRepository.count(EventSpecifications.hasText("nnotation"));
+
+        // Then
+        assertTrue(prefix >= EVENTS, String.valueOf(prefix));
+        assertEquals(0, substring);
+    }
+
+    @Test
+    void loadEvent_ShouldNotSelectSearchVector() {
+        // When
+        eventRepository.findById(firstEventId);
+        List<String> statements = SqlRecorder.drain();
+
+        // Then
+        assertEquals(1, statements.size(), statements.toString());
+        assertFalse(statements.get(0).contains("search_vector"), statements.get(0));
+    }
+
+    @Test
+    void adminSearch_ByUsersAndStates_ShouldUseIndex() {
+        // When
+        Specification<Event> spec = Specification
+                .where(AdminEventSpecifications.byUserIds(List.of(firstUserId, firstUserId + 1)))
+                .and(AdminEventSpecifications.byStates(List.of(EventState.PENDING)));
+        String plan = explain(() -> eventRepository.findAll(spec, PageRequest.of(0, 10)),
+                firstUserId, firstUserId + 1, EventState.PENDING.name(), 0, 10);
+
+        // Then
+        assertIndexScanOnly(plan, "events");
+    }
+
+    @Test
+    void requestLookups_ShouldUseIndexes() {
+        // When
+        String byEvent = explain(() -> requestRepository.findByEventId(firstEventId), firstEventId);
+        String byRequester = explain(() -> requestRepository.findByRequesterId(firstUserId), firstUserId);
+        String exists = explain(() -> requestRepository.existsByRequesterIdAndEventId(firstUserId, firstEventId),
+                firstUserId, firstEventId, 1);
+
+        // Then
+        assertIndexScanOnly(byEvent, "requests");
+        assertIndexScanOnly(byRequester, "requests");
+        assertIndexScanOnly(exists, "requests");
+    }
+
+    /**
+     * Runs the repository call, takes the SQL Hibernate sent for it and explains that statement
+     * with the given bind values.
+     */
+    private String explain(Runnable repositoryCall, Object... params) {
+        repositoryCall.run();
+        List<String> statements = SqlRecorder.drain();
+        assertFalse(statements.isEmpty(), "no SQL recorded");
+        String sql = statements.get(0);
+        assertEquals(params.length, sql.chars().filter(c -> c == '?').count(), sql);
+        return jdbcTemplate.query("EXPLAIN " + sql, rs -> {
+            List<String> lines = new ArrayList<>();
+            while (rs.next()) {
+                lines.add(rs.getString(1));
+            }
+            return String.join("\n", lines);
+        }, params);
+    }
+
+    private static void assertIndexScanOnly(String plan, String table) {
+        assertFalse(plan.contains("Seq Scan on " + table), plan);
+        assertTrue(plan.contains("Index"), plan);
+    }
+
+    public static class SqlRecorder implements StatementInspector {
+
+        private static final List<String> STATEMENTS = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            synchronized (STATEMENTS) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+
+        static void clear() {
+            synchronized (STATEMENTS) {
+                STATEMENTS.clear();
+            }
+        }
+
+        static List<String> drain() {
+            synchronized (STATEMENTS) {
+                List<String> statements = STATEMENTS.stream()
+                        .filter(sql -> sql.startsWith("select"))
+                        .collect(Collectors.toList());
+                STATEMENTS.clear();
+                return statements;
+            }
+        }
+    }
+}
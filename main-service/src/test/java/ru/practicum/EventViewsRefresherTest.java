@@ -0,0 +1,59 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.repository.EventViewsRepository;
+import ru.practicum.service.EventViewsRefresher;
+import ru.practicum.service.StatsService;
+
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+
+class EventViewsRefresherTest extends EmbeddedPostgresTest {
+
+    @Autowired
+    private EventViewsRepository eventViewsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final StatsService statsService = mock(StatsService.class);
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("UPDATE event_views_refresh SET refreshed_at = '1970-01-01'");
+        when(statsService.getAllEventViews(anyBoolean())).thenReturn(Map.of());
+    }
+
+    @Test
+    void refresh_WhenAnotherInstanceRefreshedWithinInterval_ShouldSkip() {
+        // Given
+        EventViewsRefresher instance = new EventViewsRefresher(statsService, eventViewsRepository, 60_000, true);
+        EventViewsRefresher otherInstance = new EventViewsRefresher(statsService, eventViewsRepository, 60_000, true);
+
+        // When
+        instance.refresh();
+        otherInstance.refresh();
+        instance.refresh();
+
+        // Then
+        verify(statsService, times(1)).getAllEventViews(true);
+    }
+
+    @Test
+    void refresh_WhenIntervalHasPassed_ShouldRefreshAgain() {
+        // Given
+        EventViewsRefresher refresher = new EventViewsRefresher(statsService, eventViewsRepository, 60_000, false);
+        refresher.refresh();
+
+        // When
+        jdbcTemplate.update("UPDATE event_views_refresh SET refreshed_at = refreshed_at - INTERVAL '1 minute'");
+        refresher.refresh();
+
+        // Then
+        verify(statsService, times(2)).getAllEventViews(false);
+    }
+}
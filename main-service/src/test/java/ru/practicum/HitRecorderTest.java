@@ -0,0 +1,142 @@
+package ru.practicum;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.client.ResourceAccessException;
+import ru.practicum.client.StatsClient;
+import ru.practicum.dto.EndpointHit;
+import ru.practicum.service.hit.HitOverflowPolicy;
+import ru.practicum.service.hit.HitRecorder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitRecorderTest {
+
+    // long enough that only stop() flushes, unless a test asks for more
+    private static final long NO_SCHEDULED_FLUSH_MS = 60_000;
+
+    @Mock
+    private StatsClient statsClient;
+
+    @Captor
+    private ArgumentCaptor<List<EndpointHit>> batches;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void stop_ShouldSendBufferedHitsInBatches() {
+        // Given
+        HitRecorder recorder = recorder(10, 2, NO_SCHEDULED_FLUSH_MS, HitOverflowPolicy.DROP_OLDEST);
+        recorder.start();
+        record(recorder, "/events/1", "/events/2", "/events/3");
+
+        // When
+        recorder.stop();
+
+        // Then
+        verify(statsClient, times(2)).saveHits(batches.capture());
+        assertEquals(List.of(List.of("/events/1", "/events/2"), List.of("/events/3")),
+                batches.getAllValues().stream().map(HitRecorderTest::uris).toList());
+        assertEquals(3.0, meterRegistry.counter("stats.hits.recorded").count());
+    }
+
+    @Test
+    void record_WhenBufferIsFullAndDropOldest_ShouldKeepNewestHits() {
+        // Given
+        HitRecorder recorder = recorder(2, 10, NO_SCHEDULED_FLUSH_MS, HitOverflowPolicy.DROP_OLDEST);
+        recorder.start();
+
+        // When
+        record(recorder, "/events/1", "/events/2", "/events/3");
+        recorder.stop();
+
+        // Then
+        verify(statsClient).saveHits(batches.capture());
+        assertEquals(List.of("/events/2", "/events/3"), uris(batches.getValue()));
+        assertEquals(1.0, meterRegistry.counter("stats.hits.dropped").count());
+    }
+
+    @Test
+    void record_WhenBufferIsFullAndDropNewest_ShouldKeepOldestHits() {
+        // Given
+        HitRecorder recorder = recorder(2, 10, NO_SCHEDULED_FLUSH_MS, HitOverflowPolicy.DROP_NEWEST);
+        recorder.start();
+
+        // When
+        record(recorder, "/events/1", "/events/2", "/events/3");
+        recorder.stop();
+
+        // Then
+        verify(statsClient).saveHits(batches.capture());
+        assertEquals(List.of("/events/1", "/events/2"), uris(batches.getValue()));
+        assertEquals(1.0, meterRegistry.counter("stats.hits.dropped").count());
+    }
+
+    @Test
+    void flush_WhenSendFails_ShouldRetryBatchAheadOfNewerHits() {
+        // Given
+        doThrow(new ResourceAccessException("Connection refused")).doNothing().when(statsClient).saveHits(anyList());
+        HitRecorder recorder = recorder(10, 10, 10, HitOverflowPolicy.DROP_OLDEST);
+        record(recorder, "/events/1", "/events/2");
+        recorder.start();
+        verify(statsClient, timeout(5_000).atLeastOnce()).saveHits(anyList());
+
+        // When
+        record(recorder, "/events/3");
+        recorder.stop();
+
+        // Then
+        verify(statsClient, atLeast(2)).saveHits(batches.capture());
+        assertEquals(List.of("/events/1", "/events/2", "/events/3"),
+                batches.getAllValues().stream().skip(1).flatMap(batch -> uris(batch).stream()).toList());
+        assertEquals(1.0, meterRegistry.counter("stats.hits.send.failures").count());
+    }
+
+    @Test
+    void flush_WhenBreakerIsOpen_ShouldBackOffInsteadOfRetryingEveryInterval() throws Exception {
+        // Given
+        CircuitBreaker openBreaker = CircuitBreaker.ofDefaults("stats-server-hits");
+        openBreaker.transitionToOpenState();
+        doThrow(CallNotPermittedException.createCallNotPermittedException(openBreaker))
+                .when(statsClient).saveHits(anyList());
+        HitRecorder recorder = recorder(10, 10, 10, HitOverflowPolicy.DROP_OLDEST);
+        record(recorder, "/events/1");
+
+        // When
+        recorder.start();
+        Thread.sleep(500);
+        recorder.stop();
+
+        // Then
+        // every 10 ms would be about 50 attempts; doubling from 20 ms allows 5 in 500 ms, plus the one in stop()
+        verify(statsClient, atMost(7)).saveHits(anyList());
+    }
+
+    private HitRecorder recorder(int capacity, int batchSize, long flushIntervalMs, HitOverflowPolicy policy) {
+        return new HitRecorder(statsClient, meterRegistry, capacity, batchSize, flushIntervalMs, 30_000, policy);
+    }
+
+    private static void record(HitRecorder recorder, String... uris) {
+        for (String uri : uris) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+            request.setRemoteAddr("10.0.0.1");
+            recorder.record(request);
+        }
+    }
+
+    private static List<String> uris(List<EndpointHit> batch) {
+        return batch.stream().map(EndpointHit::getUri).toList();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the JDBC statements Hibernate prepares while a block runs. Needs
+ * {@code hibernate.generate_statistics=true} in the test context.
+ */
+class QueryCounter {
+
+    private final Statistics statistics;
+
+    QueryCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        assertTrue(statistics.isStatisticsEnabled(), "hibernate.generate_statistics is off");
+    }
+
+    long count(Runnable block) {
+        statistics.clear();
+        block.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    void assertAtMost(long maxStatements, String description, Runnable block) {
+        long statements = count(block);
+        assertTrue(statements <= maxStatements,
+                description + " ran " + statements + " statements, expected at most " + maxStatements);
+    }
+}
@@ -0,0 +1,247 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import ru.practicum.dto.request.EventRequestStatusUpdateRequest;
+import ru.practicum.exception.ConflictException;
+import ru.practicum.exception.NotFoundException;
+import ru.practicum.model.Category;
+import ru.practicum.model.Request;
+import ru.practicum.model.User;
+import ru.practicum.model.event.Event;
+import ru.practicum.model.event.EventState;
+import ru.practicum.model.event.Location;
+import ru.practicum.model.request.RequestStatus;
+import ru.practicum.repository.CategoryRepository;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.RequestRepository;
+import ru.practicum.repository.UserRepository;
+import ru.practicum.service.RequestService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestServiceConcurrencyTest extends EmbeddedPostgresTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private RequestService requestService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Test
+    void createRequest_WhenManyUsersSignUpConcurrently_ShouldNotExceedParticipantLimit() throws Exception {
+        // Given
+        int limit = 50;
+        int participants = 400;
+        Event event = createEvent(limit, false);
+        List<User> users = createUsers(participants);
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        // When
+        runConcurrently(users, user -> {
+            try {
+                requestService.createRequest(user.getId(), event.getId());
+                accepted.incrementAndGet();
+            } catch (ConflictException e) {
+                refused.incrementAndGet();
+            }
+        });
+
+        // Then
+        assertEquals(limit, accepted.get());
+        assertEquals(participants - limit, refused.get());
+        assertEquals(limit, countConfirmed(event));
+        assertEquals(limit, eventRepository.findConfirmedRequestsById(event.getId()));
+    }
+
+    @Test
+    void updateRequests_WhenInitiatorConfirmsConcurrently_ShouldNotExceedParticipantLimit() throws Exception {
+        // Given
+        int limit = 20;
+        int participants = 100;
+        Event event = createEvent(limit, true);
+        List<Long> requestIds = new ArrayList<>();
+        for (User user : createUsers(participants)) {
+            requestIds.add(requestService.createRequest(user.getId(), event.getId()).getId());
+        }
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        // When
+        runConcurrently(requestIds, requestId -> {
+            EventRequestStatusUpdateRequest update = new EventRequestStatusUpdateRequest();
+            update.setRequestIds(List.of(requestId));
+            update.setStatus("CONFIRMED");
+            try {
+                requestService.updateRequests(event.getInitiator().getId(), event.getId(), update);
+                accepted.incrementAndGet();
+            } catch (ConflictException e) {
+                refused.incrementAndGet();
+            }
+        });
+
+        // Then
+        assertEquals(limit, accepted.get());
+        assertEquals(participants - limit, refused.get());
+        assertEquals(limit, countConfirmed(event));
+        assertEquals(limit, eventRepository.findConfirmedRequestsById(event.getId()));
+        assertTrue(requestRepository.findByEventId(event.getId()).stream()
+                .noneMatch(r -> r.getStatus() == RequestStatus.PENDING));
+    }
+
+    @Test
+    void cancelRequest_WhenConfirmed_ShouldFreeSeat() {
+        // Given
+        Event event = createEvent(1, false);
+        List<User> users = createUsers(2);
+        Long requestId = requestService.createRequest(users.get(0).getId(), event.getId()).getId();
+
+        // When
+        requestService.cancelRequest(users.get(0).getId(), requestId);
+
+        // Then
+        assertEquals(0, eventRepository.findConfirmedRequestsById(event.getId()));
+        assertEquals(RequestStatus.CONFIRMED.name(),
+                requestService.createRequest(users.get(1).getId(), event.getId()).getStatus());
+    }
+
+    @Test
+    void updateRequests_WhenRequestBelongsToAnotherEvent_ShouldThrowNotFound() {
+        // Given
+        Event event = createEvent(10, true);
+        Event otherEvent = createEvent(10, true);
+        List<User> users = createUsers(2);
+        Long ownRequestId = requestService.createRequest(users.get(0).getId(), event.getId()).getId();
+        Long otherRequestId = requestService.createRequest(users.get(1).getId(), otherEvent.getId()).getId();
+
+        EventRequestStatusUpdateRequest update = new EventRequestStatusUpdateRequest();
+        update.setRequestIds(List.of(ownRequestId, otherRequestId));
+        update.setStatus("CONFIRMED");
+
+        // When & Then
+        assertThrows(NotFoundException.class,
+                () -> requestService.updateRequests(event.getInitiator().getId(), event.getId(), update));
+        assertEquals(RequestStatus.PENDING, requestRepository.findById(otherRequestId).orElseThrow().getStatus());
+        assertEquals(0, eventRepository.findConfirmedRequestsById(event.getId()));
+        assertEquals(0, eventRepository.findConfirmedRequestsById(otherEvent.getId()));
+    }
+
+    @Test
+    void cancelRequest_WhenInitiatorConfirmsConcurrently_ShouldNotDeadlockOrSkewCounter() throws Exception {
+        // Given
+        int participants = 60;
+        Event event = createEvent(participants, true);
+        List<User> users = createUsers(participants);
+        List<Long[]> actions = new ArrayList<>();
+        for (User user : users) {
+            Long requestId = requestService.createRequest(user.getId(), event.getId()).getId();
+            actions.add(new Long[]{user.getId(), requestId});
+            actions.add(new Long[]{null, requestId});
+        }
+
+        AtomicInteger failures = new AtomicInteger();
+
+        // When
+        runConcurrently(actions, action -> {
+            try {
+                if (action[0] != null) {
+                    requestService.cancelRequest(action[0], action[1]);
+                } else {
+                    EventRequestStatusUpdateRequest update = new EventRequestStatusUpdateRequest();
+                    update.setRequestIds(List.of(action[1]));
+                    update.setStatus("CONFIRMED");
+                    requestService.updateRequests(event.getInitiator().getId(), event.getId(), update);
+                }
+            } catch (ConflictException e) {
+                // already canceled, or already confirmed and then canceled
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+            }
+        });
+
+        // Then
+        assertEquals(0, failures.get());
+        assertEquals(countConfirmed(event), eventRepository.findConfirmedRequestsById(event.getId()));
+    }
+
+    private <T> void runConcurrently(List<T> items, Consumer<T> action) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        try {
+            for (T item : items) {
+                executor.submit(() -> {
+                    startGate.await();
+                    action.accept(item);
+                    return null;
+                });
+            }
+            startGate.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+    }
+
+    private long countConfirmed(Event event) {
+        return requestRepository.findByEventId(event.getId()).stream()
+                .map(Request::getStatus)
+                .filter(RequestStatus.CONFIRMED::equals)
+                .count();
+    }
+
+    private Event createEvent(int participantLimit, boolean requestModeration) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User initiator = userRepository.save(User.builder()
+                .name("initiator")
+                .email("initiator-" + suffix + "@example.com")
+                .build());
+        Category category = categoryRepository.save(Category.builder().name("category-" + suffix).build());
+        return eventRepository.save(Event.builder()
+                .title("Event " + suffix)
+                .annotation("Annotation of a popular event")
+                .description("Description of a popular event")
+                .eventDate(LocalDateTime.now().plusDays(7))
+                .location(new Location(55.75f, 37.62f))
+                .participantLimit(participantLimit)
+                .requestModeration(requestModeration)
+                .state(EventState.PUBLISHED)
+                .publishedOn(LocalDateTime.now())
+                .initiator(initiator)
+                .category(category)
+                .build());
+    }
+
+    private List<User> createUsers(int count) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(User.builder().name("user " + i).email("user-" + i + "-" + suffix + "@example.com").build());
+        }
+        return userRepository.saveAll(users);
+    }
+}
@@ -0,0 +1,115 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.service.cache.ResponseCache;
+import ru.practicum.service.cache.ResponseCache.Region;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ResponseCache responseCache = new ResponseCache(new ObjectMapper(), meterRegistry, 100, 60_000);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void get_WhenCached_ShouldNotLoadAgain() {
+        // Given
+        byte[] first = responseCache.get(Region.CATEGORIES, "0:10", this::load);
+
+        // When
+        byte[] second = responseCache.get(Region.CATEGORIES, "0:10", this::load);
+
+        // Then
+        assertEquals(1, loads.get());
+        assertEquals("[1]", new String(second, StandardCharsets.UTF_8));
+        assertArrayEquals(first, second);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void invalidate_ShouldDropOnlyThatRegion() {
+        // Given
+        responseCache.get(Region.CATEGORIES, "0:10", this::load);
+        responseCache.get(Region.COMPILATIONS, "0:10", this::load);
+
+        // When
+        responseCache.invalidate(Region.CATEGORIES);
+        byte[] categories = responseCache.get(Region.CATEGORIES, "0:10", this::load);
+        byte[] compilations = responseCache.get(Region.COMPILATIONS, "0:10", this::load);
+
+        // Then
+        assertEquals(3, loads.get());
+        assertEquals("[3]", new String(categories, StandardCharsets.UTF_8));
+        assertEquals("[2]", new String(compilations, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void invalidate_InsideTransaction_ShouldEvictAfterCommit() {
+        // Given
+        responseCache.get(Region.COMPILATIONS, "0:10", this::load);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        responseCache.invalidate(Region.COMPILATIONS);
+        responseCache.get(Region.COMPILATIONS, "0:10", this::load);
+        int loadsBeforeCommit = loads.get();
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        responseCache.get(Region.COMPILATIONS, "0:10", this::load);
+
+        // Then
+        assertEquals(1, loadsBeforeCommit);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_WhenInvalidatedWhileLoading_ShouldNotKeepLoadedResponse() {
+        // Given
+        byte[] loaded = responseCache.get(Region.CATEGORIES, "0:10", () -> {
+            responseCache.invalidate(Region.CATEGORIES);
+            return load();
+        });
+
+        // When
+        byte[] next = responseCache.get(Region.CATEGORIES, "0:10", this::load);
+
+        // Then
+        assertEquals("[1]", new String(loaded, StandardCharsets.UTF_8));
+        assertEquals("[2]", new String(next, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void get_WhenLoaderFails_ShouldNotCacheFailure() {
+        // Given
+        assertThrows(IllegalStateException.class, () -> responseCache.get(Region.CATEGORIES, "0:10", () -> {
+            throw new IllegalStateException("database is down");
+        }));
+
+        // When
+        byte[] body = responseCache.get(Region.CATEGORIES, "0:10", this::load);
+
+        // Then
+        assertEquals("[1]", new String(body, StandardCharsets.UTF_8));
+    }
+
+    private List<Integer> load() {
+        return List.of(loads.incrementAndGet());
+    }
+}
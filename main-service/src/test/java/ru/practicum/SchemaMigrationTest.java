@@ -0,0 +1,70 @@
+package ru.practicum;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs schema.sql repeatedly against one database, as every application start does.
+ */
+class SchemaMigrationTest {
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void schema_ShouldBackfillConfirmedRequestsOnlyWhenColumnIsAdded() {
+        // Given
+        runSchema();
+        jdbcTemplate.execute("ALTER TABLE events DROP COLUMN confirmed_requests CASCADE");
+        long userId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (name, email) VALUES ('user', 'user@example.com') RETURNING id", Long.class);
+        long categoryId = jdbcTemplate.queryForObject(
+                "INSERT INTO categories (name) VALUES ('category') RETURNING id", Long.class);
+        long eventId = jdbcTemplate.queryForObject("""
+                INSERT INTO events (title, annotation, description, event_date, created_on, initiator_id, category_id)
+                VALUES ('title', 'annotation', 'description', now(), now(), ?, ?) RETURNING id""",
+                Long.class, userId, categoryId);
+        jdbcTemplate.update("""
+                INSERT INTO requests (event_id, requester_id, status, created)
+                VALUES (?, ?, 'CONFIRMED', now()), (?, ?, 'CONFIRMED', now()), (?, ?, 'PENDING', now())""",
+                eventId, userId, eventId, userId, eventId, userId);
+
+        // When
+        runSchema();
+        long backfilled = confirmedRequests(eventId);
+        jdbcTemplate.update("UPDATE events SET confirmed_requests = 3 WHERE id = ?", eventId);
+        runSchema();
+
+        // Then
+        assertEquals(2, backfilled);
+        assertEquals(3, confirmedRequests(eventId));
+    }
+
+    private static void runSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(postgres.getPostgresDatabase());
+    }
+
+    private static long confirmedRequests(long eventId) {
+        return jdbcTemplate.queryForObject("SELECT confirmed_requests FROM events WHERE id = ?", Long.class, eventId);
+    }
+}
@@ -0,0 +1,115 @@
+package ru.practicum;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.practicum.client.CircuitBreakingStatsClient;
+import ru.practicum.client.StatsClient;
+import ru.practicum.dto.ViewStats;
+import ru.practicum.model.event.Event;
+import ru.practicum.service.StatsService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatsServiceTest {
+
+    @Mock
+    private StatsClient statsServer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final CircuitBreaker readCircuitBreaker = CircuitBreaker.of("stats-server", CircuitBreakerConfig.custom()
+            .slidingWindowSize(2)
+            .minimumNumberOfCalls(2)
+            .failureRateThreshold(50)
+            .waitDurationInOpenState(Duration.ofMinutes(1))
+            .build());
+
+    private MockHttpServletResponse response;
+    private StatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+        StatsClient statsClient = new CircuitBreakingStatsClient(statsServer, readCircuitBreaker,
+                CircuitBreaker.ofDefaults("stats-server-hits"));
+        // entries expire at once, so every call goes to the stats server
+        statsService = new StatsService(statsClient, meterRegistry, false, 100, 0, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void getViewsCount_WhenStatsServerFails_ShouldOpenBreakerAndFallBackToLastKnownViews() {
+        // Given
+        when(statsServer.getStats(any(), any(), anyList(), any(), anyBoolean()))
+                .thenReturn(List.of(new ViewStats("ewm-main-service", "/events/1", 5L)))
+                .thenThrow(new ResourceAccessException("Connection refused"));
+        assertEquals(Map.of(1L, 5L), statsService.getViewsCount(List.of(event(1L))));
+        assertNull(response.getHeader(StatsService.STALE_VIEWS_HEADER));
+
+        // When
+        Map<Long, Long> views = statsService.getViewsCount(List.of(event(1L), event(2L)));
+
+        // Then
+        assertEquals(CircuitBreaker.State.OPEN, readCircuitBreaker.getState());
+        assertEquals(Map.of(1L, 5L), views);
+        assertEquals("true", response.getHeader(StatsService.STALE_VIEWS_HEADER));
+        assertEquals(1.0, meterRegistry.get("event.views.stale").counter().count());
+    }
+
+    @Test
+    void getViewsCount_WhenBreakerIsOpen_ShouldNotCallStatsServerAndMarkViewsStale() {
+        // Given
+        readCircuitBreaker.transitionToOpenState();
+
+        // When
+        Map<Long, Long> views = statsService.getViewsCount(List.of(event(1L)));
+
+        // Then
+        assertTrue(views.isEmpty());
+        assertEquals("true", response.getHeader(StatsService.STALE_VIEWS_HEADER));
+        assertEquals(1.0, meterRegistry.get("event.views.stale").counter().count());
+        verifyNoInteractions(statsServer);
+    }
+
+    @Test
+    void getAllEventViews_WhenBreakerIsOpen_ShouldStillStreamStats() {
+        // Given
+        readCircuitBreaker.transitionToOpenState();
+
+        // When
+        statsService.getAllEventViews(true);
+
+        // Then
+        verify(statsServer).streamStats(any(), any(), isNull(), eq(true), eq(true), any());
+    }
+
+    private static Event event(Long id) {
+        return Event.builder().id(id).build();
+    }
+}
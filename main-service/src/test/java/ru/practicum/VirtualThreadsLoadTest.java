@@ -0,0 +1,197 @@
+package ru.practicum;
+
+import com.sun.net.httpserver.HttpServer;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of {@code GET /events/{id}} with many concurrent clients, once on Tomcat's platform thread
+ * pool and once on virtual threads, against a stats server stub that answers after a fixed delay.
+ * The views cache is effectively off, so every request waits for the stub. The numbers are logged rather than
+ * asserted: they depend on the machine, and on a single core both modes are CPU-bound.
+ * <p>
+ * Not part of the regular build; run with {@code mvn test -pl main-service -am -P load-test}.
+ */
+@Slf4j
+@Tag("load")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class VirtualThreadsLoadTest {
+
+    private static final int CONCURRENCY = 1000;
+    private static final int EVENTS = 2000;
+    private static final Duration STATS_LATENCY = Duration.ofMillis(50);
+    private static final Duration WARM_UP = Duration.ofSeconds(3);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(10);
+
+    private EmbeddedPostgres postgres;
+    private HttpServer statsStub;
+    private long firstEventId;
+
+    @BeforeAll
+    void start() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        statsStub = HttpServer.create(new InetSocketAddress("localhost", 0), 1000);
+        // platform threads: the JDK server reads request bodies while holding a monitor
+        statsStub.setExecutor(Executors.newCachedThreadPool());
+        statsStub.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(STATS_LATENCY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        statsStub.start();
+    }
+
+    @AfterAll
+    void stop() throws IOException {
+        statsStub.stop(0);
+        postgres.close();
+    }
+
+    @Test
+    void compareThroughput_PlatformAndVirtualThreads() throws Exception {
+        // When
+        Result platform = measure(false);
+        Result virtual = measure(true);
+
+        // Then
+        log.info("platform threads: {}", platform);
+        log.info("virtual threads:  {}", virtual);
+        assertTrue(platform.errorRate() < 0.01, "platform threads: " + platform);
+        assertTrue(virtual.errorRate() < 0.01, "virtual threads: " + virtual);
+    }
+
+    private Result measure(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(EwmMainApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--stats.client.base-url=http://localhost:" + statsStub.getAddress().getPort(),
+                "--stats.views.cache.max-size=0",
+                "--stats.views.deadline-ms=10000",
+                "--stats.views.projection.refresh-interval-ms=3600000")) {
+            seed(context.getBean(JdbcTemplate.class));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            load(port, WARM_UP);
+            return load(port, MEASUREMENT);
+        }
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        if (firstEventId != 0) {
+            return;
+        }
+        long userId = jdbcTemplate.queryForObject(
+                "INSERT INTO users (name, email) VALUES ('load', 'load@example.com') RETURNING id", Long.class);
+        long categoryId = jdbcTemplate.queryForObject(
+                "INSERT INTO categories (name) VALUES ('load') RETURNING id", Long.class);
+        firstEventId = jdbcTemplate.queryForObject("""
+                WITH inserted AS (
+                    INSERT INTO events (title, annotation, description, event_date, paid, participant_limit,
+                                        state, created_on, published_on, initiator_id, category_id)
+                    SELECT 'Load event ' || g, 'Annotation of load event', 'Description of load event',
+                           now() + INTERVAL '30 days', false, 0, 'PUBLISHED', now(), now(), ?, ?
+                    FROM generate_series(1, ?) g
+                    RETURNING id)
+                SELECT MIN(id) FROM inserted""", Long.class, userId, categoryId, EVENTS);
+    }
+
+    private Result load(int port, Duration duration) throws Exception {
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong latencyNanos = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder().executor(clients)
+                     .connectTimeout(Duration.ofSeconds(5)).build()) {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                workers.add(clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long eventId = firstEventId + ThreadLocalRandom.current().nextInt(EVENTS);
+                        HttpRequest request = HttpRequest.newBuilder(
+                                        URI.create("http://localhost:" + port + "/events/" + eventId))
+                                .timeout(Duration.ofSeconds(30))
+                                .build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                completed.incrementAndGet();
+                                latencyNanos.addAndGet(System.nanoTime() - sent);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        return new Result(completed.get(), errors.get(), duration, latencyNanos.get());
+    }
+
+    private record Result(long completed, long errors, Duration duration, long latencyNanos) {
+
+        double throughput() {
+            return completed * 1000.0 / duration.toMillis();
+        }
+
+        double meanLatencyMs() {
+            return latencyNanos / 1_000_000.0 / Math.max(1, completed);
+        }
+
+        double errorRate() {
+            return (double) errors / Math.max(1, completed + errors);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f requests/s, mean latency %.0f ms, %d errors",
+                    throughput(), meanLatencyMs(), errors);
+        }
+    }
+}
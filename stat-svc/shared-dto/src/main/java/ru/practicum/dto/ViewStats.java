@@ -1,5 +1,6 @@
 package ru.practicum.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,4 +13,12 @@ public class ViewStats {
     private String app;
     private String uri;
     private Long hits;
-}
\ No newline at end of file
+
+    // relative standard error of an approximate count, absent for exact counts
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double errorBound;
+
+    public ViewStats(String app, String uri, Long hits) {
+        this(app, uri, hits, null);
+    }
+}
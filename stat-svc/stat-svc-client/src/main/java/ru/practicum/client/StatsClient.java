@@ -5,15 +5,45 @@ import ru.practicum.dto.ViewStats;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsClient {
 
     void saveHit(EndpointHit hit);
 
-    List<ViewStats> getStats(
+    void saveHits(List<EndpointHit> hits);
+
+    default List<ViewStats> getStats(
             LocalDateTime start,
             LocalDateTime end,
             List<String> uris,
             Boolean unique
+    ) {
+        return getStats(start, end, uris, unique, false);
+    }
+
+    /**
+     * With {@code approximate} set, unique counts come from HyperLogLog sketches and each
+     * {@link ViewStats} carries its {@code errorBound}.
+     */
+    List<ViewStats> getStats(
+            LocalDateTime start,
+            LocalDateTime end,
+            List<String> uris,
+            Boolean unique,
+            boolean approximate
+    );
+
+    /**
+     * The rows of {@link #getStats}, handed to {@code consumer} while the response is read, so that memory does
+     * not grow with the number of uris. Errors are thrown as by {@link #getStats}, possibly after some rows.
+     */
+    void streamStats(
+            LocalDateTime start,
+            LocalDateTime end,
+            List<String> uris,
+            Boolean unique,
+            boolean approximate,
+            Consumer<ViewStats> consumer
     );
-}
\ No newline at end of file
+}
@@ -1,12 +1,19 @@
 package ru.practicum.client;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 import ru.practicum.dto.EndpointHit;
+import ru.practicum.dto.StatsQueryRequest;
 import ru.practicum.dto.ViewStats;
 
 import java.net.URI;
@@ -16,18 +23,42 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Stats queries with more than {@code postQueryThreshold} uris are sent as {@code POST /stats/query} with the
+ * uris in the body instead of in the URL. Streamed queries may go through their own {@code RestTemplate}, so that
+ * a long read of the whole history is not cut off by the timeouts meant for lookups.
+ */
 public class StatsClientImpl implements StatsClient {
 
+    public static final int DEFAULT_POST_QUERY_THRESHOLD = 100;
+
     private final RestTemplate restTemplate;
+    private final RestTemplate streamRestTemplate;
     private final String baseUrl;
+    private final int postQueryThreshold;
 
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final ObjectReader VIEW_STATS_READER = new ObjectMapper()
+            .readerFor(ViewStats.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
 
     public StatsClientImpl(RestTemplate restTemplate, String baseUrl) {
+        this(restTemplate, baseUrl, DEFAULT_POST_QUERY_THRESHOLD);
+    }
+
+    public StatsClientImpl(RestTemplate restTemplate, String baseUrl, int postQueryThreshold) {
+        this(restTemplate, restTemplate, baseUrl, postQueryThreshold);
+    }
+
+    public StatsClientImpl(RestTemplate restTemplate, RestTemplate streamRestTemplate, String baseUrl,
+                           int postQueryThreshold) {
         this.restTemplate = restTemplate;
+        this.streamRestTemplate = streamRestTemplate;
         this.baseUrl = baseUrl;
+        this.postQueryThreshold = postQueryThreshold;
     }
 
     @Override
@@ -40,7 +71,75 @@ public class StatsClientImpl implements StatsClient {
     }
 
     @Override
-    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    public void saveHits(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        String url = baseUrl + "/hits";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<List<EndpointHit>> request = new HttpEntity<>(hits, headers);
+        restTemplate.postForEntity(url, request, Void.class);
+    }
+
+    @Override
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                    boolean approximate) {
+        ResponseEntity<ViewStats[]> response;
+        if (isLongUriList(uris)) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            HttpEntity<StatsQueryRequest> request = new HttpEntity<>(
+                    queryRequest(start, end, uris, unique, approximate), headers);
+            response = restTemplate.postForEntity(baseUrl + "/stats/query", request, ViewStats[].class);
+        } else {
+            URI uri = statsUri(start, end, uris, unique, approximate);
+            response = restTemplate.getForEntity(uri, ViewStats[].class);
+        }
+        return Arrays.asList(response.getBody());
+    }
+
+    /**
+     * Asks for {@code application/x-ndjson} and parses one row at a time off the response body. Error responses
+     * are still JSON, so {@code application/json} is accepted too.
+     */
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                            boolean approximate, Consumer<ViewStats> consumer) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON));
+        ResponseExtractor<Void> rowReader = response -> {
+            try (MappingIterator<ViewStats> rows = VIEW_STATS_READER.readValues(response.getBody())) {
+                while (rows.hasNextValue()) {
+                    consumer.accept(rows.nextValue());
+                }
+            }
+            return null;
+        };
+
+        if (isLongUriList(uris)) {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            HttpEntity<StatsQueryRequest> request = new HttpEntity<>(
+                    queryRequest(start, end, uris, unique, approximate), headers);
+            streamRestTemplate.execute(URI.create(baseUrl + "/stats/query"), HttpMethod.POST,
+                    streamRestTemplate.httpEntityCallback(request), rowReader);
+        } else {
+            streamRestTemplate.execute(statsUri(start, end, uris, unique, approximate), HttpMethod.GET,
+                    streamRestTemplate.httpEntityCallback(new HttpEntity<>(headers)), rowReader);
+        }
+    }
+
+    private boolean isLongUriList(List<String> uris) {
+        return uris != null && uris.size() > postQueryThreshold;
+    }
+
+    private static StatsQueryRequest queryRequest(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                                  Boolean unique, boolean approximate) {
+        return new StatsQueryRequest(start, end, uris, Boolean.TRUE.equals(unique), approximate);
+    }
+
+    private URI statsUri(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                         boolean approximate) {
         String startStr = start.format(FORMATTER);
         String endStr = end.format(FORMATTER);
 
@@ -62,8 +161,10 @@ public class StatsClientImpl implements StatsClient {
             builder.queryParam("unique", unique);
         }
 
-        URI uri = builder.build(true).toUri();
-        ResponseEntity<ViewStats[]> response = restTemplate.getForEntity(uri, ViewStats[].class);
-        return Arrays.asList(response.getBody());
+        if (approximate) {
+            builder.queryParam("approximate", true);
+        }
+
+        return builder.build(true).toUri();
     }
 }
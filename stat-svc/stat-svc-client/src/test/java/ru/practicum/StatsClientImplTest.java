@@ -0,0 +1,174 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import ru.practicum.client.StatsClientImpl;
+import ru.practicum.dto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StatsClientImplTest {
+
+    private static final String BASE_URL = "http://stats-server:9090";
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    private MockRestServiceServer server;
+    private StatsClientImpl client;
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+        client = new StatsClientImpl(restTemplate, BASE_URL, 2);
+    }
+
+    @Test
+    void streamStats_ShouldAskForNdjsonAndHandOverEachRow() {
+        // Given
+        server.expect(requestTo(BASE_URL + "/stats?start=2024-01-01+00%3A00%3A00&end=2024-02-01+00%3A00%3A00"
+                        + "&uris=%2Fevents%2F1,%2Fevents%2F2&unique=true"))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header("Accept", "application/x-ndjson, application/json"))
+                .andRespond(withSuccess(
+                        "{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":5}\n"
+                                + "{\"app\":\"ewm-main-service\",\"uri\":\"/events/2\",\"hits\":3,"
+                                + "\"errorBound\":0.02}\n",
+                        MediaType.APPLICATION_NDJSON));
+        List<ViewStats> rows = new ArrayList<>();
+
+        // When
+        client.streamStats(START, END, List.of("/events/1", "/events/2"), true, false, rows::add);
+
+        // Then
+        server.verify();
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", 5L),
+                new ViewStats("ewm-main-service", "/events/2", 3L, 0.02)), rows);
+    }
+
+    @Test
+    void streamStats_ShouldGoThroughStreamRestTemplate() {
+        // Given
+        RestTemplate lookups = new RestTemplate();
+        RestTemplate streams = new RestTemplate();
+        MockRestServiceServer lookupServer = MockRestServiceServer.bindTo(lookups).build();
+        MockRestServiceServer streamServer = MockRestServiceServer.bindTo(streams).build();
+        streamServer.expect(method(HttpMethod.GET))
+                .andRespond(withSuccess("{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":5}\n",
+                        MediaType.APPLICATION_NDJSON));
+        StatsClientImpl splitClient = new StatsClientImpl(lookups, streams, BASE_URL, 2);
+        List<ViewStats> rows = new ArrayList<>();
+
+        // When
+        splitClient.streamStats(START, END, null, true, false, rows::add);
+
+        // Then
+        streamServer.verify();
+        lookupServer.verify();
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", 5L)), rows);
+    }
+
+    @Test
+    void streamStats_WhenServerRejectsQuery_ShouldThrowWithoutRows() {
+        // Given
+        server.expect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body("{\"status\":\"BAD_REQUEST\",\"reason\":\"Incorrectly made request.\"}"));
+        List<ViewStats> rows = new ArrayList<>();
+
+        // When
+        HttpClientErrorException error = assertThrows(HttpClientErrorException.class,
+                () -> client.streamStats(START, END, null, false, false, rows::add));
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+        assertTrue(rows.isEmpty());
+    }
+
+    @Test
+    void streamStats_WhenStreamBreaksOffMidRow_ShouldThrowAfterEarlierRows() {
+        // Given
+        server.expect(method(HttpMethod.GET))
+                .andRespond(withSuccess(
+                        "{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":5}\n"
+                                + "{\"app\":\"ewm-main-service\",\"uri\":\"/ev",
+                        MediaType.APPLICATION_NDJSON));
+        List<ViewStats> rows = new ArrayList<>();
+
+        // When
+        assertThrows(ResourceAccessException.class,
+                () -> client.streamStats(START, END, null, false, false, rows::add));
+
+        // Then
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/1", 5L)), rows);
+    }
+
+    @Test
+    void getStats_WhenUrisExceedThreshold_ShouldPostQueryBody() {
+        // Given
+        server.expect(requestTo(BASE_URL + "/stats/query"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.start").value("2024-01-01 00:00:00"))
+                .andExpect(jsonPath("$.uris.length()").value(3))
+                .andExpect(jsonPath("$.unique").value(true))
+                .andExpect(jsonPath("$.approximate").value(false))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        // When
+        client.getStats(START, END, List.of("/events/1", "/events/2", "/events/3"), true, false);
+
+        // Then
+        server.verify();
+    }
+
+    @Test
+    void getStats_WhenUrisAreWithinThreshold_ShouldPutThemInUrl() {
+        // Given
+        server.expect(requestTo(BASE_URL + "/stats?start=2024-01-01+00%3A00%3A00&end=2024-02-01+00%3A00%3A00"
+                        + "&uris=%2Fevents%2F1,%2Fevents%2F2&approximate=true"))
+                .andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON));
+
+        // When
+        client.getStats(START, END, List.of("/events/1", "/events/2"), null, true);
+
+        // Then
+        server.verify();
+    }
+
+    @Test
+    void streamStats_WhenUrisExceedThreshold_ShouldPostQueryBody() {
+        // Given
+        server.expect(requestTo(BASE_URL + "/stats/query"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(header("Accept", "application/x-ndjson, application/json"))
+                .andExpect(jsonPath("$.uris.length()").value(3))
+                .andRespond(withSuccess(
+                        "{\"app\":\"ewm-main-service\",\"uri\":\"/events/3\",\"hits\":1}\n",
+                        MediaType.APPLICATION_NDJSON));
+        List<ViewStats> rows = new ArrayList<>();
+
+        // When
+        client.streamStats(START, END, List.of("/events/1", "/events/2", "/events/3"), false, false, rows::add);
+
+        // Then
+        server.verify();
+        assertEquals(List.of(new ViewStats("ewm-main-service", "/events/3", 1L)), rows);
+    }
+}
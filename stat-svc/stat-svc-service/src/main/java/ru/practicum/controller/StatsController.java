@@ -1,14 +1,22 @@
 package ru.practicum.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.EndpointHit;
+import ru.practicum.dto.StatsQueryRequest;
 import ru.practicum.dto.ViewStats;
 import ru.practicum.service.StatsService;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -18,6 +26,7 @@ import java.util.List;
 public class StatsController {
 
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -25,13 +34,68 @@ public class StatsController {
         statsService.saveHit(hit);
     }
 
+    @PostMapping("/hits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void hits(@RequestBody List<@Valid EndpointHit> hits) {
+        statsService.saveHits(hits);
+    }
+
     @GetMapping("/stats")
     public List<ViewStats> getStats(
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
             @RequestParam(required = false) List<String> uris,
-            @RequestParam(defaultValue = "false") Boolean unique) {
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "false") Boolean approximate) {
 
+        if (unique && approximate) {
+            return statsService.getApproximateUniqueStats(start, end, uris);
+        }
         return statsService.getStats(start, end, uris, unique);
     }
-}
\ No newline at end of file
+
+    /**
+     * The same rows as {@link #getStats}, one JSON object per line, written while they are read from storage.
+     * Chosen with {@code Accept: application/x-ndjson}.
+     */
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamStats(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(defaultValue = "false") Boolean approximate,
+            HttpServletResponse response) throws IOException {
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        ObjectWriter writer = objectMapper.writerFor(ViewStats.class);
+        try {
+            statsService.streamStats(start, end, uris, unique, approximate, stats -> {
+                try {
+                    out.write(writer.writeValueAsBytes(stats));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * {@link #getStats} with the parameters in the body, for uri lists too long for a URL.
+     */
+    @PostMapping("/stats/query")
+    public List<ViewStats> queryStats(@Valid @RequestBody StatsQueryRequest query) {
+        return getStats(query.getStart(), query.getEnd(), query.getUris(), query.isUnique(), query.isApproximate());
+    }
+
+    @PostMapping(value = "/stats/query", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void streamQueryStats(@Valid @RequestBody StatsQueryRequest query,
+                                 HttpServletResponse response) throws IOException {
+        streamStats(query.getStart(), query.getEnd(), query.getUris(), query.isUnique(), query.isApproximate(),
+                response);
+    }
+}
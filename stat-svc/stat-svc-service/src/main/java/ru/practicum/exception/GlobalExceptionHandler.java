@@ -1,6 +1,8 @@
 package ru.practicum.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -11,14 +13,30 @@ import java.util.Map;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
-    @ExceptionHandler(DateValidationException.class)
-    public ResponseEntity<Map<String, Object>> handleValidationException(DateValidationException ex) {
+    @ExceptionHandler({DateValidationException.class, IpValidationException.class})
+    public ResponseEntity<Map<String, Object>> handleValidationException(RuntimeException ex) {
         Map<String, Object> body = Map.of(
                 "timestamp", LocalDateTime.now(),
                 "status", HttpStatus.BAD_REQUEST.value(),
                 "error", "Bad Request",
                 "message", ex.getMessage()
         );
-        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+        // explicit, so that clients accepting only application/x-ndjson still get the error body
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @ExceptionHandler(IngestionOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> handleIngestionOverloaded(IngestionOverloadedException ex) {
+        Map<String, Object> body = Map.of(
+                "timestamp", LocalDateTime.now(),
+                "status", HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "error", "Service Unavailable",
+                "message", ex.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
     }
 }
@@ -0,0 +1,7 @@
+package ru.practicum.exception;
+
+public class IpValidationException extends RuntimeException {
+    public IpValidationException(String message) {
+        super(message);
+    }
+}
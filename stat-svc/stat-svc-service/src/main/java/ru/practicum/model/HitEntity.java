@@ -1,7 +1,6 @@
 package ru.practicum.model;
 
 
-import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -9,27 +8,23 @@ import lombok.Setter;
 
 import java.time.LocalDateTime;
 
-@Entity
-@Table(name = "hits")
+/**
+ * One row of {@code hits}. The table keeps {@code app} and {@code uri} as ids into {@code hit_apps} and
+ * {@code hit_uris} and {@code ip} as {@code inet}; see {@link ru.practicum.repository.HitBatchRepository}.
+ */
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class HitEntity {
 
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false)
     private String app;
 
-    @Column(nullable = false)
     private String uri;
 
-    @Column(nullable = false)
     private String ip;
 
-    @Column(nullable = false)
     private LocalDateTime timestamp;
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package ru.practicum.model;
+
+import ru.practicum.exception.IpValidationException;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
+
+/**
+ * Turns IP literals into one spelling per address, so that the same visitor is counted once whether its IP
+ * comes from a request or back from the {@code inet} column. Only literals are accepted: anything else would
+ * make {@link InetAddress} resolve it as a host name.
+ */
+public final class IpAddresses {
+
+    private static final Pattern IPV4 = Pattern.compile(
+            "((25[0-5]|2[0-4]\\d|1?\\d?\\d)\\.){3}(25[0-5]|2[0-4]\\d|1?\\d?\\d)");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    private IpAddresses() {
+    }
+
+    public static String canonical(String ip) {
+        if (!IPV4.matcher(ip).matches() && !IPV6.matcher(ip).matches()) {
+            throw new IpValidationException("Invalid IP address: " + ip);
+        }
+        try {
+            return InetAddress.getByName(ip).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IpValidationException("Invalid IP address: " + ip);
+        }
+    }
+}
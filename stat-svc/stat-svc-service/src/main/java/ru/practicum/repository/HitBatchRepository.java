@@ -0,0 +1,48 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.model.HitEntity;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain JDBC writer for hits. Together with {@code reWriteBatchedInserts=true} on the PostgreSQL
+ * connection URL every batch goes to the database as multi-row {@code INSERT} statements.
+ * Rollup counters and unique-visitor sketches are written later by {@link ru.practicum.storage.HitSummaryFlusher};
+ * inserts hold the {@link HitWatermarkRepository} lock that tells it which hits are committed.
+ * <p>
+ * Apps and uris are written as their {@link HitDictionaryRepository} ids and IPs as {@code inet}, which keeps
+ * a row at a few dozen bytes however long its uri is.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitBatchRepository {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO hits (app_id, uri_id, ip, timestamp) VALUES (?, ?, ?::inet, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HitDictionaryRepository hitDictionaryRepository;
+    private final HitWatermarkRepository hitWatermarkRepository;
+
+    @Transactional
+    public void saveAll(List<HitEntity> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        hitWatermarkRepository.lockForInsert();
+        Map<String, Integer> appIds = hitDictionaryRepository.appIds(hits.stream().map(HitEntity::getApp).toList());
+        Map<String, Integer> uriIds = hitDictionaryRepository.uriIds(hits.stream().map(HitEntity::getUri).toList());
+        jdbcTemplate.batchUpdate(INSERT_SQL, hits, hits.size(), (ps, hit) -> {
+            ps.setInt(1, appIds.get(hit.getApp()));
+            ps.setInt(2, uriIds.get(hit.getUri()));
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+    }
+}
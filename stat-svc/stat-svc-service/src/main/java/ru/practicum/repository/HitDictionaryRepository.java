@@ -0,0 +1,75 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small integer keys for the app names and uris of hits, stored in {@code hit_apps} and {@code hit_uris}.
+ * Keys never change once assigned, so they are cached for the life of the process. A key created inside
+ * a transaction is cached only after that transaction commits; until then no other writer could use it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitDictionaryRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+
+    public Map<String, Integer> appIds(Collection<String> apps) {
+        return resolve("hit_apps", "name", appIds, apps);
+    }
+
+    public Map<String, Integer> uriIds(Collection<String> uris) {
+        return resolve("hit_uris", "uri", uriIds, uris);
+    }
+
+    private Map<String, Integer> resolve(String table, String column, Map<String, Integer> cache,
+                                         Collection<String> values) {
+        Map<String, Integer> ids = new HashMap<>();
+        // sorted, so that concurrent writers adding the same new values lock them in the same order
+        TreeSet<String> missing = new TreeSet<>();
+        for (String value : values) {
+            Integer id = cache.get(value);
+            if (id != null) {
+                ids.put(value, id);
+            } else {
+                missing.add(value);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ids;
+        }
+
+        String[] array = missing.toArray(String[]::new);
+        jdbcTemplate.update("INSERT INTO " + table + " (" + column + ")"
+                + " SELECT v FROM unnest(?::varchar[]) AS v ORDER BY v ON CONFLICT DO NOTHING", (Object) array);
+        Map<String, Integer> created = new HashMap<>();
+        jdbcTemplate.query("SELECT " + column + ", id FROM " + table + " WHERE " + column + " = ANY(?::varchar[])",
+                rs -> {
+                    created.put(rs.getString(1), rs.getInt(2));
+                }, (Object) array);
+        ids.putAll(created);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.putAll(created);
+                }
+            });
+        } else {
+            cache.putAll(created);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,65 @@
+package ru.practicum.repository;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One range partition of {@code hits}, holding hits with {@code from <= timestamp < to}.
+ * Monthly partitions are named {@code hits_pYYYY_MM}, daily ones {@code hits_pYYYY_MM_DD}.
+ */
+public record HitPartition(String name, LocalDateTime from, LocalDateTime to) {
+
+    private static final Pattern NAME = Pattern.compile("hits_p(\\d{4})_(\\d{2})(?:_(\\d{2}))?");
+
+    public static HitPartition containing(LocalDateTime time, Granularity granularity) {
+        LocalDateTime from = granularity.floor(time);
+        return new HitPartition(from.format(granularity.nameFormat), from, from.plus(1, granularity.unit));
+    }
+
+    public static Optional<HitPartition> parse(String name) {
+        Matcher matcher = NAME.matcher(name);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        int year = Integer.parseInt(matcher.group(1));
+        int month = Integer.parseInt(matcher.group(2));
+        if (matcher.group(3) == null) {
+            return Optional.of(containing(LocalDateTime.of(year, month, 1, 0, 0), Granularity.MONTH));
+        }
+        int day = Integer.parseInt(matcher.group(3));
+        return Optional.of(containing(LocalDateTime.of(year, month, day, 0, 0), Granularity.DAY));
+    }
+
+    public boolean overlaps(HitPartition other) {
+        return from.isBefore(other.to) && other.from.isBefore(to);
+    }
+
+    public enum Granularity {
+        DAY(ChronoUnit.DAYS, "'hits_p'yyyy_MM_dd"),
+        MONTH(ChronoUnit.MONTHS, "'hits_p'yyyy_MM");
+
+        private final ChronoUnit unit;
+        private final DateTimeFormatter nameFormat;
+
+        Granularity(ChronoUnit unit, String namePattern) {
+            this.unit = unit;
+            this.nameFormat = DateTimeFormatter.ofPattern(namePattern);
+        }
+
+        public LocalDateTime floor(LocalDateTime time) {
+            LocalDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+            return this == MONTH ? day.withDayOfMonth(1) : day;
+        }
+
+        /**
+         * Unit name as {@code date_trunc} takes it.
+         */
+        public String sqlUnit() {
+            return name().toLowerCase();
+        }
+    }
+}
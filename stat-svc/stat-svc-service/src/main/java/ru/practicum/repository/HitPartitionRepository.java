@@ -0,0 +1,87 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * DDL for the range partitions of {@code hits}. Partition bounds cannot be bind parameters, so they are
+ * formatted into the statements; names and bounds always come from {@link HitPartition}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitPartitionRepository {
+
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<HitPartition> findAll() {
+        return jdbcTemplate.queryForList("""
+                        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                        WHERE i.inhparent = 'hits'::regclass""", String.class).stream()
+                .map(HitPartition::parse)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    /**
+     * Starts of the periods that have rows in the default partition.
+     */
+    public List<LocalDateTime> findDefaultPeriods(HitPartition.Granularity granularity) {
+        return jdbcTemplate.queryForList(
+                        "SELECT DISTINCT date_trunc('" + granularity.sqlUnit() + "', timestamp) FROM hits_default",
+                        Timestamp.class).stream()
+                .map(Timestamp::toLocalDateTime)
+                .toList();
+    }
+
+    /**
+     * Creates the partition, moving over any of its rows that are in the default partition:
+     * PostgreSQL refuses to create a partition whose rows the default partition still holds.
+     * The parent is locked first, as creating the partition would do anyway, so that writers
+     * and other instances queue behind it instead of deadlocking with it.
+     */
+    @Transactional
+    public void create(HitPartition partition) {
+        jdbcTemplate.execute("LOCK TABLE hits IN ACCESS EXCLUSIVE MODE");
+        if (findAll().contains(partition)) {
+            return;
+        }
+        Timestamp from = Timestamp.valueOf(partition.from());
+        Timestamp to = Timestamp.valueOf(partition.to());
+        boolean misplaced = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM hits_default WHERE timestamp >= ? AND timestamp < ?)",
+                Boolean.class, from, to));
+        if (misplaced) {
+            jdbcTemplate.execute("CREATE TEMPORARY TABLE hits_moving (LIKE hits) ON COMMIT DROP");
+            jdbcTemplate.update("""
+                    WITH moved AS (
+                        DELETE FROM hits_default WHERE timestamp >= ? AND timestamp < ?
+                        RETURNING id, app_id, uri_id, ip, timestamp)
+                    INSERT INTO hits_moving (id, app_id, uri_id, ip, timestamp) SELECT * FROM moved""", from, to);
+        }
+        jdbcTemplate.execute("CREATE TABLE " + partition.name() + " PARTITION OF hits FOR VALUES FROM ('"
+                + partition.from().format(BOUND) + "') TO ('" + partition.to().format(BOUND) + "')");
+        if (misplaced) {
+            jdbcTemplate.update("""
+                    INSERT INTO hits (id, app_id, uri_id, ip, timestamp) OVERRIDING SYSTEM VALUE
+                    SELECT id, app_id, uri_id, ip, timestamp FROM hits_moving""");
+        }
+    }
+
+    public void drop(HitPartition partition) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.name());
+    }
+
+    public int deleteDefaultBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM hits_default WHERE timestamp < ?", Timestamp.valueOf(cutoff));
+    }
+}
@@ -1,32 +1,68 @@
 package ru.practicum.repository;
 
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
-import ru.practicum.model.HitEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
-public interface HitRepository extends JpaRepository<HitEntity, Long> {
-    @Query("""
-            SELECT h.app, h.uri, COUNT(h) FROM HitEntity h
-                        WHERE h.timestamp BETWEEN :start AND :end
-                        AND (:uris IS NULL OR h.uri IN :uris)
-                        GROUP BY h.app, h.uri
-                        ORDER BY COUNT(h) DESC
-            """)
-    List<Object[]> findStats(@Param("start") LocalDateTime start,
-                             @Param("end") LocalDateTime end,
-                             @Param("uris") List<String> uris);
-
-    @Query("""
-            SELECT h.app, h.uri, COUNT(DISTINCT h.ip) FROM HitEntity h
-                        WHERE h.timestamp BETWEEN :start AND :end
-                        AND (:uris IS NULL OR h.uri IN :uris)
-                        GROUP BY h.app, h.uri
-                        ORDER BY COUNT(DISTINCT h.ip) DESC""")
-    List<Object[]> findUniqueStats(@Param("start") LocalDateTime start,
-                                   @Param("end") LocalDateTime end,
-                                   @Param("uris") List<String> uris);
+/**
+ * Aggregates over raw hits. Uris are filtered through {@code hit_uris}, so each wanted uri turns into
+ * a scan of the {@code (uri_id, timestamp)} index of the partitions in range. Wanted uris are bound as one
+ * {@code text[]} parameter, so the statement is the same however many there are.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitRepository {
+
+    private static final String STATS_SQL = """
+            SELECT a.name, u.uri, %1$s FROM hits h
+            JOIN hit_apps a ON a.id = h.app_id
+            JOIN hit_uris u ON u.id = h.uri_id
+            WHERE h.timestamp BETWEEN :start AND :end%2$s
+            GROUP BY a.name, u.uri
+            ORDER BY %1$s DESC""";
+    private static final String UNIQUE_COUNT = "COUNT(DISTINCT h.ip)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<Object[]> findStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return query("COUNT(*)", start, end, uris);
+    }
+
+    public List<Object[]> findUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return query(UNIQUE_COUNT, start, end, uris);
+    }
+
+    /**
+     * The rows of {@link #findUniqueStats}, read through {@link StatsCursor}; must run in a transaction.
+     */
+    public void streamUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                  Consumer<Object[]> consumer) {
+        StatsCursor.forEachRow(jdbcTemplate, sql(UNIQUE_COUNT, uris), params(start, end, uris), consumer);
+    }
+
+    private List<Object[]> query(String count, LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return jdbcTemplate.query(sql(count, uris), params(start, end, uris),
+                (rs, rowNum) -> new Object[]{rs.getString(1), rs.getString(2), rs.getLong(3)});
+    }
+
+    private static String sql(String count, List<String> uris) {
+        return STATS_SQL.formatted(count, uris != null && !uris.isEmpty() ? " AND u.uri = ANY(:uris)" : "");
+    }
+
+    private static MapSqlParameterSource params(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        if (uris != null && !uris.isEmpty()) {
+            params.addValue("uris", new SqlArrayValue("text", uris.toArray()));
+        }
+        return params;
+    }
 }
@@ -0,0 +1,101 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Per-minute, per-hour and per-day hit counters per (app, uri), so that range queries only touch raw hits
+ * at the sub-minute edges. The counters are built from committed raw hits by
+ * {@link ru.practicum.storage.HitSummaryFlusher} up to the {@link HitWatermarkRepository watermark}; hits past
+ * it, including late hits whose buckets are already rolled up, are counted from raw hits.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitRollupRepository {
+
+    private static final String ROLL_UP_SQL = """
+            INSERT INTO %1$s (uri, app, bucket, hits)
+            SELECT u.uri, a.name, date_trunc('%2$s', h.timestamp), COUNT(*) FROM hits h
+            JOIN hit_apps a ON a.id = h.app_id
+            JOIN hit_uris u ON u.id = h.uri_id
+            WHERE h.id > ? AND h.id <= ?
+            GROUP BY 1, 2, 3
+            ON CONFLICT (uri, app, bucket) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits""";
+
+    private static final String RAW_COUNT_SQL = "SELECT a.name AS app, u.uri, COUNT(*) AS hits FROM hits h"
+            + " JOIN hit_apps a ON a.id = h.app_id JOIN hit_uris u ON u.id = h.uri_id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds the hits with ids in {@code (fromId, toId]} to the rollup rows. Must run in the transaction that
+     * advances the watermark past {@code toId}.
+     */
+    @Transactional
+    public void rollUp(long fromId, long toId) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            jdbcTemplate.getJdbcTemplate().update(
+                    ROLL_UP_SQL.formatted(granularity.getTable(), granularity.getDateTruncField()), fromId, toId);
+        }
+    }
+
+    public List<Object[]> findStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        return jdbcTemplate.query(statsSql(start, end, uris, params), params,
+                (rs, rowNum) -> new Object[]{rs.getString(1), rs.getString(2), rs.getLong(3)});
+    }
+
+    /**
+     * The rows of {@link #findStats}, read through {@link StatsCursor}; must run in a transaction.
+     */
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Consumer<Object[]> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StatsCursor.forEachRow(jdbcTemplate, statsSql(start, end, uris, params), params, consumer);
+    }
+
+    private String statsSql(LocalDateTime start, LocalDateTime end, List<String> uris,
+                            MapSqlParameterSource params) {
+        // hits have second precision, so BETWEEN start AND end equals [start, end + 1s)
+        List<RollupRange> ranges = RollupPlanner.plan(start, end.plusSeconds(1));
+        boolean filterUris = uris != null && !uris.isEmpty();
+        String rawUriFilter = filterUris ? " AND u.uri = ANY(:uris)" : "";
+
+        if (filterUris) {
+            params.addValue("uris", new SqlArrayValue("text", uris.toArray()));
+        }
+        List<String> parts = new ArrayList<>();
+        List<String> rolledRanges = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            RollupRange range = ranges.get(i);
+            params.addValue("from" + i, Timestamp.valueOf(range.from()));
+            params.addValue("to" + i, Timestamp.valueOf(range.to()));
+            String timeFilter = "h.timestamp >= :from" + i + " AND h.timestamp < :to" + i;
+            if (range.isRaw()) {
+                parts.add(RAW_COUNT_SQL + " WHERE " + timeFilter + rawUriFilter + " GROUP BY a.name, u.uri");
+            } else {
+                parts.add("SELECT app, uri, SUM(hits) AS hits FROM " + range.granularity().getTable()
+                        + " WHERE bucket >= :from" + i + " AND bucket < :to" + i
+                        + (filterUris ? " AND uri = ANY(:uris)" : "")
+                        + " GROUP BY app, uri");
+                rolledRanges.add("(" + timeFilter + ")");
+            }
+        }
+        if (!rolledRanges.isEmpty()) {
+            // one statement, one snapshot: the rollups and the watermark read here belong together
+            parts.add(RAW_COUNT_SQL + " WHERE h.id > (SELECT last_hit_id FROM hit_summary_watermark WHERE id = 1)"
+                    + " AND (" + String.join(" OR ", rolledRanges) + ")" + rawUriFilter + " GROUP BY a.name, u.uri");
+        }
+        return "SELECT app, uri, SUM(hits) FROM (" + String.join(" UNION ALL ", parts) + ") r"
+                + " GROUP BY app, uri ORDER BY SUM(hits) DESC";
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.model.IpAddresses;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Daily HyperLogLog sketches of visitor IPs per (app, uri), used for approximate unique counts.
+ * Sketches are merged from committed raw hits by {@link ru.practicum.storage.HitSummaryFlusher} up to the sketch
+ * {@link HitWatermarkRepository watermark}. Whole days in a range are answered by merging stored sketches and
+ * the raw hits past the watermark in those days; the partial days at the edges are folded in from raw hits.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitSketchRepository {
+
+    private static final String INSERT_EMPTY_SQL = """
+            INSERT INTO hits_daily_hll (uri, app, bucket, sketch) VALUES (:uri, :app, :bucket, :sketch)
+            ON CONFLICT (uri, app, bucket) DO NOTHING""";
+    private static final String LOCK_SQL = """
+            SELECT sketch FROM hits_daily_hll WHERE uri = :uri AND app = :app AND bucket = :bucket FOR UPDATE""";
+    private static final String UPDATE_SQL = """
+            UPDATE hits_daily_hll SET sketch = :sketch WHERE uri = :uri AND app = :app AND bucket = :bucket""";
+    private static final String RAW_IPS_SQL = """
+            SELECT u.uri, a.name, date_trunc('day', h.timestamp), h.ip FROM hits h
+            JOIN hit_apps a ON a.id = h.app_id
+            JOIN hit_uris u ON u.id = h.uri_id
+            WHERE h.id > :fromId AND h.id <= :toId
+            GROUP BY 1, 2, 3, 4""";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Merges the visitors of hits with ids in {@code (fromId, toId]} into the stored sketches, in key order so
+     * that concurrent writers lock rows in the same order. Merging is idempotent, so hits merged twice are
+     * still counted once. The caller advances the watermark past {@code toId}.
+     */
+    @Transactional
+    public void rollUp(long fromId, long toId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("fromId", fromId)
+                .addValue("toId", toId);
+        Map<SketchKey, HyperLogLog> sketches = new TreeMap<>();
+        jdbcTemplate.query(RAW_IPS_SQL, params, rs -> {
+            SketchKey key = new SketchKey(rs.getString(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime());
+            sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(IpAddresses.canonical(rs.getString(4)));
+        });
+        sketches.forEach(this::mergeInto);
+    }
+
+    private void mergeInto(SketchKey key, HyperLogLog sketch) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("uri", key.uri())
+                .addValue("app", key.app())
+                .addValue("bucket", Timestamp.valueOf(key.bucket()))
+                .addValue("sketch", new HyperLogLog().toBytes());
+        jdbcTemplate.update(INSERT_EMPTY_SQL, params);
+        byte[] stored = jdbcTemplate.queryForObject(LOCK_SQL, params, byte[].class);
+        sketch.merge(HyperLogLog.fromBytes(stored));
+        jdbcTemplate.update(UPDATE_SQL, params.addValue("sketch", sketch.toBytes()));
+    }
+
+    public List<Object[]> findApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        LocalDateTime endExclusive = end.plusSeconds(1);
+        LocalDateTime daysFrom = RollupGranularity.DAY.ceil(start);
+        LocalDateTime daysTo = RollupGranularity.DAY.floor(endExclusive);
+        boolean filterUris = uris != null && !uris.isEmpty();
+        String uriFilter = filterUris ? " AND uri = ANY(:uris)" : "";
+        MapSqlParameterSource params = rangeParams(start, endExclusive, uris, filterUris)
+                .addValue("daysFrom", Timestamp.valueOf(daysFrom))
+                .addValue("daysTo", Timestamp.valueOf(daysTo));
+
+        String raw = "SELECT a.name, u.uri, NULL::bytea, h.ip FROM hits h"
+                + " JOIN hit_apps a ON a.id = h.app_id JOIN hit_uris u ON u.id = h.uri_id";
+        String sql;
+        if (daysFrom.isBefore(daysTo)) {
+            // one statement, one snapshot: the sketches and the watermark read here belong together
+            sql = "SELECT app, uri, sketch, NULL::inet FROM hits_daily_hll"
+                    + " WHERE bucket >= :daysFrom AND bucket < :daysTo" + uriFilter
+                    + " UNION ALL " + raw
+                    + " WHERE (h.timestamp >= :from AND h.timestamp < :daysFrom"
+                    + " OR h.timestamp >= :daysTo AND h.timestamp < :to"
+                    + " OR h.id > (SELECT last_sketch_hit_id FROM hit_summary_watermark WHERE id = 1)"
+                    + " AND h.timestamp >= :daysFrom AND h.timestamp < :daysTo)" + uriFilter
+                    + " GROUP BY a.name, u.uri, h.ip";
+        } else {
+            sql = raw + " WHERE h.timestamp >= :from AND h.timestamp < :to" + uriFilter
+                    + " GROUP BY a.name, u.uri, h.ip";
+        }
+
+        Map<AppUri, HyperLogLog> sketches = new HashMap<>();
+        jdbcTemplate.query(sql, params, rs -> {
+            HyperLogLog sketch = sketches.computeIfAbsent(new AppUri(rs.getString(1), rs.getString(2)),
+                    k -> new HyperLogLog());
+            byte[] stored = rs.getBytes(3);
+            if (stored != null) {
+                sketch.merge(HyperLogLog.fromBytes(stored));
+            } else {
+                sketch.add(IpAddresses.canonical(rs.getString(4)));
+            }
+        });
+
+        return sketches.entrySet().stream()
+                .map(e -> new Object[]{e.getKey().app(), e.getKey().uri(), e.getValue().estimate()})
+                .sorted(Comparator.comparingLong((Object[] row) -> (Long) row[2]).reversed())
+                .toList();
+    }
+
+    private static MapSqlParameterSource rangeParams(LocalDateTime from, LocalDateTime to,
+                                                     List<String> uris, boolean filterUris) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        if (filterUris) {
+            params.addValue("uris", new SqlArrayValue("text", uris.toArray()));
+        }
+        return params;
+    }
+
+    private record AppUri(String app, String uri) {
+    }
+
+    private record SketchKey(String uri, String app, LocalDateTime bucket) implements Comparable<SketchKey> {
+
+        private static final Comparator<SketchKey> ORDER = Comparator.comparing(SketchKey::uri)
+                .thenComparing(SketchKey::app)
+                .thenComparing(SketchKey::bucket);
+
+        @Override
+        public int compareTo(SketchKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
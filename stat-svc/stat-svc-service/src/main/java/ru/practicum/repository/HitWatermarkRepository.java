@@ -0,0 +1,72 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The ids of the last raw hits whose counts are in the rollup tables and whose visitors are in the daily
+ * sketches, kept in {@code hit_summary_watermark} and advanced in the same transaction as the rollup upserts
+ * and sketch merges, so summaries never lose or repeat a hit.
+ * <p>
+ * Hit ids come from a sequence and are taken before their transaction commits, so a lower id can become
+ * visible after a higher one. Writers therefore hold a shared advisory lock while they insert, and
+ * {@link #committedHitId()} takes it exclusively for a moment: once it gets it, every id taken so far
+ * belongs to a transaction that has committed or rolled back. Writers that arrive while it waits queue behind it,
+ * so it gives up after {@code lock_timeout}; that flush fails and the next one tries again.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitWatermarkRepository {
+
+    // arbitrary key of the advisory lock between hit writers and the summary flusher
+    private static final long INSERT_LOCK = 0x68697473L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Called by hit writers inside their transaction, before the first insert.
+     */
+    public void lockForInsert() {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock_shared(?)", rs -> {
+        }, INSERT_LOCK);
+    }
+
+    /**
+     * @return an id such that every hit with an id up to it is committed or will never be
+     */
+    @Transactional
+    public long committedHitId() {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '1s'");
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?)", rs -> {
+        }, INSERT_LOCK);
+        Long lastValue = jdbcTemplate.queryForObject(
+                "SELECT pg_sequence_last_value(pg_get_serial_sequence('hits', 'id')::regclass)", Long.class);
+        return lastValue == null ? 0 : lastValue;
+    }
+
+    /**
+     * Reads the watermark and locks it until the end of the current transaction, so that only one flusher
+     * rolls up a given range of hits.
+     */
+    @Transactional
+    public Watermark lock() {
+        return jdbcTemplate.queryForObject(
+                "SELECT last_hit_id, last_sketch_hit_id FROM hit_summary_watermark WHERE id = 1 FOR UPDATE",
+                (rs, rowNum) -> new Watermark(rs.getLong(1), rs.getLong(2)));
+    }
+
+    @Transactional
+    public void advance(Watermark watermark) {
+        jdbcTemplate.update("UPDATE hit_summary_watermark SET last_hit_id = ?, last_sketch_hit_id = ? WHERE id = 1",
+                watermark.rollups(), watermark.sketches());
+    }
+
+    /**
+     * @param rollups  the last hit id counted in the rollup tables
+     * @param sketches the last hit id merged into the daily sketches
+     */
+    public record Watermark(long rollups, long sketches) {
+    }
+}
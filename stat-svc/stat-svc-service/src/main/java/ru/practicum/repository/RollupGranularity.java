@@ -0,0 +1,37 @@
+package ru.practicum.repository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupGranularity {
+    DAY("hits_daily", ChronoUnit.DAYS, "day"),
+    HOUR("hits_hourly", ChronoUnit.HOURS, "hour"),
+    MINUTE("hits_minutely", ChronoUnit.MINUTES, "minute");
+
+    private final String table;
+    private final ChronoUnit unit;
+    private final String dateTruncField;
+
+    RollupGranularity(String table, ChronoUnit unit, String dateTruncField) {
+        this.table = table;
+        this.unit = unit;
+        this.dateTruncField = dateTruncField;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getDateTruncField() {
+        return dateTruncField;
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.repository;
+
+import lombok.experimental.UtilityClass;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a time range into the coarsest rollup buckets that fit completely inside it.
+ * Whole days come from daily rollups, the remaining whole hours at both edges from hourly ones,
+ * then whole minutes, and only the sub-minute edges are left for raw hits.
+ */
+@UtilityClass
+public class RollupPlanner {
+
+    private static final RollupGranularity[] LEVELS = RollupGranularity.values();
+
+    public static List<RollupRange> plan(LocalDateTime start, LocalDateTime endExclusive) {
+        List<RollupRange> ranges = new ArrayList<>();
+        split(start, endExclusive, 0, ranges);
+        return ranges;
+    }
+
+    private static void split(LocalDateTime from, LocalDateTime to, int level, List<RollupRange> ranges) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == LEVELS.length) {
+            ranges.add(new RollupRange(null, from, to));
+            return;
+        }
+        RollupGranularity granularity = LEVELS[level];
+        LocalDateTime alignedFrom = granularity.ceil(from);
+        LocalDateTime alignedTo = granularity.floor(to);
+        if (alignedFrom.isBefore(alignedTo)) {
+            ranges.add(new RollupRange(granularity, alignedFrom, alignedTo));
+            split(from, alignedFrom, level + 1, ranges);
+            split(alignedTo, to, level + 1, ranges);
+        } else {
+            split(from, to, level + 1, ranges);
+        }
+    }
+}
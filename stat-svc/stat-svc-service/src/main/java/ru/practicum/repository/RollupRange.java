@@ -0,0 +1,14 @@
+package ru.practicum.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Half-open interval {@code [from, to)} answered either from a rollup table or, when
+ * {@code granularity} is {@code null}, from raw hits.
+ */
+public record RollupRange(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+
+    public boolean isRaw() {
+        return granularity == null;
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.function.Consumer;
+
+/**
+ * Reads {@code (app, uri, hits)} rows through a forward-only cursor, {@value #FETCH_SIZE} rows per round trip,
+ * instead of loading the whole result. PostgreSQL only keeps a cursor open inside a transaction; in
+ * auto-commit mode the driver ignores the fetch size and reads everything, so callers must run in one.
+ */
+final class StatsCursor {
+
+    static final int FETCH_SIZE = 1000;
+
+    private StatsCursor() {
+    }
+
+    static void forEachRow(NamedParameterJdbcTemplate jdbcTemplate, String sql, SqlParameterSource params,
+                           Consumer<Object[]> consumer) {
+        JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        cursor.setFetchSize(FETCH_SIZE);
+        new NamedParameterJdbcTemplate(cursor).query(sql, params, (RowCallbackHandler) rs ->
+                consumer.accept(new Object[]{rs.getString(1), rs.getString(2), rs.getLong(3)}));
+    }
+}
@@ -0,0 +1,198 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.practicum.exception.IngestionOverloadedException;
+import ru.practicum.model.HitEntity;
+import ru.practicum.storage.HitStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bounded in-memory buffer between {@code POST /hit} and the {@link HitStorage}.
+ * <p>
+ * Enabled with {@code stats.ingestion.mode=async}. A single writer thread drains the queue and flushes
+ * a batch as soon as it has {@code batch-size} hits or {@code flush-interval-ms} has passed since the
+ * first hit of the batch arrived. When the queue stays full for {@code offer-timeout-ms} the hit is
+ * rejected with {@link IngestionOverloadedException}, so callers get back-pressure instead of
+ * an unbounded heap. Once {@link #stop()} has begun, hits are rejected the same way: the writer drains
+ * what was accepted before, and nothing accepted is left behind in the queue.
+ */
+@Slf4j
+@Component
+public class HitIngestionQueue implements SmartLifecycle {
+
+    private static final long POLL_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final HitStorage hitStorage;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final BlockingQueue<HitEntity> queue;
+
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter rejectedCounter;
+    private final Counter failedCounter;
+
+    // submit offers under the read lock, stop closes under the write lock, so no offer lands after the last drain
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public HitIngestionQueue(HitStorage hitStorage,
+                             MeterRegistry meterRegistry,
+                             @Value("${stats.ingestion.mode:sync}") String mode,
+                             @Value("${stats.ingestion.queue-capacity:10000}") int queueCapacity,
+                             @Value("${stats.ingestion.batch-size:500}") int batchSize,
+                             @Value("${stats.ingestion.flush-interval-ms:200}") long flushIntervalMs,
+                             @Value("${stats.ingestion.offer-timeout-ms:50}") long offerTimeoutMs) {
+        this.hitStorage = hitStorage;
+        this.enabled = "async".equalsIgnoreCase(mode);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("stats.ingestion.queue.depth", queue, BlockingQueue::size)
+                .description("Hits waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("stats.ingestion.flush")
+                .description("Time spent writing one batch of hits")
+                .register(meterRegistry);
+        this.flushedCounter = meterRegistry.counter("stats.ingestion.flushed");
+        this.rejectedCounter = meterRegistry.counter("stats.ingestion.rejected");
+        this.failedCounter = meterRegistry.counter("stats.ingestion.failed");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void submit(HitEntity hit) {
+        boolean accepted;
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                rejectedCounter.increment();
+                throw new IngestionOverloadedException("Hit ingestion is shutting down, retry later");
+            }
+            accepted = queue.offer(hit, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        if (!accepted) {
+            rejectedCounter.increment();
+            throw new IngestionOverloadedException("Hit queue is full, retry later");
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        setClosed(false);
+        running = true;
+        writer = new Thread(this::drainLoop, "hit-ingestion-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        setClosed(true);
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void setClosed(boolean closed) {
+        closeLock.writeLock().lock();
+        try {
+            this.closed = closed;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+    }
+
+    private void drainLoop() {
+        while (running || !queue.isEmpty()) {
+            List<HitEntity> batch = new ArrayList<>(batchSize);
+            try {
+                HitEntity first = queue.poll(POLL_SLICE_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                queue.drainTo(batch);
+                flush(batch);
+                return;
+            }
+            flush(batch);
+        }
+    }
+
+    private void fillBatch(List<HitEntity> batch, long deadline) throws InterruptedException {
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                return;
+            }
+            HitEntity next = queue.poll(Math.min(remaining, POLL_SLICE_NANOS), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void flush(List<HitEntity> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            flushTimer.record(() -> hitStorage.saveAll(batch));
+            flushedCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            failedCounter.increment(batch.size());
+            log.error("Failed to write batch of {} hits", batch.size(), e);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import ru.practicum.repository.HitPartition;
+import ru.practicum.repository.HitPartitionRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the range partitions of {@code hits} ahead of the clock and drops the expired ones.
+ * <p>
+ * Every {@code stats.partitions.maintenance-interval-ms} it creates the current partition and the next
+ * {@code stats.partitions.premake}, and gives the periods found in the default partition (back-dated hits)
+ * partitions of their own. With
+ * {@code stats.partitions.retention-days} above zero, partitions that end before the cutoff are dropped
+ * and older rows are deleted from the default partition. Rollups and sketches are kept, so totals and
+ * approximate unique counts still cover dropped periods; exact unique counts do not.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+public class HitPartitionMaintenance implements SmartLifecycle {
+
+    private final HitPartitionRepository hitPartitionRepository;
+    private final HitPartition.Granularity granularity;
+    private final int premake;
+    private final int retentionDays;
+    private final long maintenanceIntervalMs;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public HitPartitionMaintenance(HitPartitionRepository hitPartitionRepository,
+                                   @Value("${stats.partitions.granularity:month}") String granularity,
+                                   @Value("${stats.partitions.premake:2}") int premake,
+                                   @Value("${stats.partitions.retention-days:0}") int retentionDays,
+                                   @Value("${stats.partitions.maintenance-interval-ms:3600000}")
+                                   long maintenanceIntervalMs) {
+        this.hitPartitionRepository = hitPartitionRepository;
+        this.granularity = HitPartition.Granularity.valueOf(granularity.toUpperCase());
+        this.premake = premake;
+        this.retentionDays = retentionDays;
+        this.maintenanceIntervalMs = maintenanceIntervalMs;
+    }
+
+    public synchronized void maintain() {
+        LocalDateTime now = LocalDateTime.now();
+        List<HitPartition> existing = new ArrayList<>(hitPartitionRepository.findAll());
+
+        LocalDateTime cutoff = retentionDays > 0 ? now.minusDays(retentionDays) : LocalDateTime.MIN;
+        for (HitPartition partition : List.copyOf(existing)) {
+            if (!partition.to().isAfter(cutoff)) {
+                hitPartitionRepository.drop(partition);
+                existing.remove(partition);
+                log.info("Dropped hits partition {}", partition.name());
+            }
+        }
+        if (retentionDays > 0) {
+            hitPartitionRepository.deleteDefaultBefore(cutoff);
+        }
+
+        List<HitPartition> wanted = new ArrayList<>();
+        for (LocalDateTime period : hitPartitionRepository.findDefaultPeriods(granularity)) {
+            wanted.add(HitPartition.containing(period, granularity));
+        }
+        HitPartition next = HitPartition.containing(now, granularity);
+        for (int i = 0; i <= premake; i++) {
+            wanted.add(next);
+            next = HitPartition.containing(next.to(), granularity);
+        }
+
+        for (HitPartition partition : wanted) {
+            if (existing.stream().noneMatch(partition::overlaps)) {
+                create(partition);
+                existing.add(partition);
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hit-partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintainSafely, 0, maintenanceIntervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void create(HitPartition partition) {
+        try {
+            hitPartitionRepository.create(partition);
+            log.info("Created hits partition {}", partition.name());
+        } catch (DataAccessException e) {
+            // e.g. another instance created an overlapping partition first; the next run sees it
+            log.warn("Failed to create hits partition {}: {}", partition.name(), e.getMessage());
+        }
+    }
+
+    private void maintainSafely() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            log.warn("Failed to maintain hits partitions: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one load per group of keys at a time. A caller whose key may share the running load of its
+ * group waits for that load and gets the same result, or the same exception, instead of starting another one;
+ * a caller whose key may not share it loads on its own. Nothing is kept once the load finishes; the next
+ * caller loads again.
+ */
+class SingleFlight<K, V> {
+
+    private final ConcurrentMap<Object, Flight<K, V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter sharedCounter;
+    private final Function<K, ?> group;
+    private final BiPredicate<K, K> canShare;
+
+    /**
+     * @param group    the part of a key that must be equal for two callers to share a load
+     * @param canShare whether a caller with the second key may take the result of the load running for the first
+     */
+    SingleFlight(Counter sharedCounter, Function<K, ?> group, BiPredicate<K, K> canShare) {
+        this.sharedCounter = sharedCounter;
+        this.group = group;
+        this.canShare = canShare;
+    }
+
+    V execute(K key, Supplier<V> loader) {
+        Object groupKey = group.apply(key);
+        Flight<K, V> own = new Flight<>(key, new CompletableFuture<>());
+        Flight<K, V> running = inFlight.putIfAbsent(groupKey, own);
+        if (running != null) {
+            if (canShare.test(running.key(), key)) {
+                sharedCounter.increment();
+                return await(running.result());
+            }
+            return loader.get();
+        }
+
+        try {
+            V value = loader.get();
+            own.result().complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(groupKey, own);
+        }
+    }
+
+    private V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Flight<K, V>(K key, CompletableFuture<V> result) {
+    }
+}
@@ -1,56 +1,149 @@
 package ru.practicum.service;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.practicum.dto.EndpointHit;
 import ru.practicum.dto.ViewStats;
 import ru.practicum.exception.DateValidationException;
 import ru.practicum.model.HitEntity;
-import ru.practicum.repository.HitRepository;
+import ru.practicum.model.IpAddresses;
+import ru.practicum.sketch.HyperLogLog;
+import ru.practicum.storage.HitStorage;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * {@code /stats} queries that arrive while an equal one is running share its result, so a burst of readers
+ * of a popular event costs the storage one query per distinct start, uri set and mode. Callers usually pass
+ * "now" as the end, so ends only have to be within {@code stats.queries.coalescing-tolerance-ms} of each
+ * other: a caller may get counts up to that much older or newer than its own end.
+ */
 @Service
 public class StatsService {
 
-    private final HitRepository hitRepository;
+    private final HitStorage hitStorage;
+    private final HitIngestionQueue hitIngestionQueue;
+    private final SingleFlight<StatsQuery, List<ViewStats>> statsQueries;
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public StatsService(HitRepository hitRepository) {
-        this.hitRepository = hitRepository;
+    public StatsService(HitStorage hitStorage,
+                        HitIngestionQueue hitIngestionQueue,
+                        MeterRegistry meterRegistry,
+                        @Value("${stats.queries.coalescing-tolerance-ms:2000}") long coalescingToleranceMs) {
+        this.hitStorage = hitStorage;
+        this.hitIngestionQueue = hitIngestionQueue;
+        Duration tolerance = Duration.ofMillis(coalescingToleranceMs);
+        this.statsQueries = new SingleFlight<>(meterRegistry.counter("stats.queries.coalesced"),
+                StatsQuery::withoutEnd, (running, query) -> running.endsWithin(query, tolerance));
     }
 
-    @Transactional
     public void saveHit(EndpointHit dto) {
+        HitEntity entity = toEntity(dto);
+        if (hitIngestionQueue.isEnabled()) {
+            hitIngestionQueue.submit(entity);
+        } else {
+            hitStorage.saveAll(List.of(entity));
+        }
+    }
+
+    public void saveHits(List<EndpointHit> dtos) {
+        hitStorage.saveAll(dtos.stream()
+                .map(this::toEntity)
+                .collect(Collectors.toList()));
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        validateRange(start, end);
+        boolean uniqueIps = Boolean.TRUE.equals(unique);
+
+        return statsQueries.execute(StatsQuery.of(start, end, uris, uniqueIps, false), () -> {
+            List<Object[]> results;
+            if (uniqueIps) {
+                results = hitStorage.findUniqueStats(start, end, uris);
+            } else {
+                results = hitStorage.findStats(start, end, uris);
+            }
+
+            return results.stream()
+                    .map(row -> new ViewStats(
+                            (String) row[0], // app
+                            (String) row[1], // uri
+                            ((Number) row[2]).longValue() // hits
+                    ))
+                    .toList();
+        });
+    }
+
+    public List<ViewStats> getApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        validateRange(start, end);
+
+        return statsQueries.execute(StatsQuery.of(start, end, uris, true, true), () ->
+                hitStorage.findApproximateUniqueStats(start, end, uris).stream()
+                        .map(row -> new ViewStats(
+                                (String) row[0],
+                                (String) row[1],
+                                ((Number) row[2]).longValue(),
+                                HyperLogLog.RELATIVE_ERROR
+                        ))
+                        .toList());
+    }
+
+    /**
+     * Hands the rows of {@link #getStats} or {@link #getApproximateUniqueStats} to {@code consumer} as they are
+     * read, without collecting them. The range is checked before the first row. Streams are not coalesced.
+     */
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            boolean approximate, Consumer<ViewStats> consumer) {
+        validateRange(start, end);
+        Double errorBound = unique && approximate ? HyperLogLog.RELATIVE_ERROR : null;
+        hitStorage.streamStats(start, end, uris, unique, approximate, row -> consumer.accept(new ViewStats(
+                (String) row[0],
+                (String) row[1],
+                ((Number) row[2]).longValue(),
+                errorBound
+        )));
+    }
+
+    private void validateRange(LocalDateTime start, LocalDateTime end) {
+        if (start.isAfter(end)) {
+            throw new DateValidationException("Start time must be before or equal to end time");
+        }
+    }
+
+    private HitEntity toEntity(EndpointHit dto) {
         HitEntity entity = new HitEntity();
         entity.setApp(dto.getApp());
         entity.setUri(dto.getUri());
-        entity.setIp(dto.getIp());
+        entity.setIp(IpAddresses.canonical(dto.getIp()));
         entity.setTimestamp(LocalDateTime.parse(dto.getTimestamp(), FORMATTER));
-        hitRepository.save(entity);
+        return entity;
     }
 
-    public List<ViewStats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
-        if (start.isAfter(end)) {
-            throw new DateValidationException("Start time must be before or equal to end time");
+    /**
+     * Uris are compared as a set: the same uris in another order, or repeated, give the same rows.
+     * The end is compared separately, with a tolerance.
+     */
+    private record StatsQuery(LocalDateTime start, LocalDateTime end, Set<String> uris, boolean unique,
+                              boolean approximate) {
+
+        static StatsQuery of(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                             boolean approximate) {
+            return new StatsQuery(start, end, uris == null ? null : Set.copyOf(uris), unique, approximate);
         }
 
-        List<Object[]> results;
-        if (Boolean.TRUE.equals(unique)) {
-            results = hitRepository.findUniqueStats(start, end, uris);
-        } else {
-            results = hitRepository.findStats(start, end, uris);
+        StatsQuery withoutEnd() {
+            return new StatsQuery(start, null, uris, unique, approximate);
         }
 
-        return results.stream()
-                .map(row -> new ViewStats(
-                        (String) row[0], // app
-                        (String) row[1], // uri
-                        ((Number) row[2]).longValue() // hits
-                ))
-                .collect(Collectors.toList());
+        boolean endsWithin(StatsQuery other, Duration tolerance) {
+            return Duration.between(end, other.end).abs().compareTo(tolerance) <= 0;
+        }
     }
-}
\ No newline at end of file
+}
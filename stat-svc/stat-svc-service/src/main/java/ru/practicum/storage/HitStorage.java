@@ -0,0 +1,44 @@
+package ru.practicum.storage;
+
+import ru.practicum.model.HitEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Where raw hits are written and aggregated, chosen with {@code stats.storage}: {@code postgres} (the default)
+ * or {@code segments}. Ranges include both ends; a null or empty {@code uris} means every uri.
+ * Rows are {@code [app, uri, hits]} with the most hit first.
+ */
+public interface HitStorage {
+
+    void saveAll(List<HitEntity> hits);
+
+    List<Object[]> findStats(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    List<Object[]> findUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    /**
+     * Unique counts that may be off by up to {@link ru.practicum.sketch.HyperLogLog#RELATIVE_ERROR}.
+     */
+    List<Object[]> findApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    /**
+     * The rows of {@link #findStats}, {@link #findUniqueStats} or, with {@code approximate}, of
+     * {@link #findApproximateUniqueStats}, handed to {@code consumer} one at a time in the same order.
+     * This default reads them all first; storages that can read rows incrementally override it.
+     */
+    default void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                             boolean approximate, Consumer<Object[]> consumer) {
+        List<Object[]> rows;
+        if (unique && approximate) {
+            rows = findApproximateUniqueStats(start, end, uris);
+        } else if (unique) {
+            rows = findUniqueStats(start, end, uris);
+        } else {
+            rows = findStats(start, end, uris);
+        }
+        rows.forEach(consumer);
+    }
+}
@@ -0,0 +1,122 @@
+package ru.practicum.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+import ru.practicum.repository.HitWatermarkRepository;
+import ru.practicum.repository.HitWatermarkRepository.Watermark;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes hit summaries every {@code stats.summaries.flush-interval-ms}, instead of three upserts and a locked
+ * read-modify-write per key inside every insert.
+ * <p>
+ * Rollup counts and daily visitor sketches are built from committed raw hits past the
+ * {@link HitWatermarkRepository watermark}, at most {@value #ROLL_UP_BATCH} hit ids per transaction, and the
+ * watermark is advanced in the same transaction. Nothing is held in memory, so after a crash the first flush
+ * rolls up whatever the last one did not, and stats queries count hits past the watermark from raw hits meanwhile.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+public class HitSummaryFlusher implements SmartLifecycle {
+
+    private static final long ROLL_UP_BATCH = 100_000;
+
+    private final HitRollupRepository hitRollupRepository;
+    private final HitSketchRepository hitSketchRepository;
+    private final HitWatermarkRepository hitWatermarkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMs;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public HitSummaryFlusher(HitRollupRepository hitRollupRepository,
+                             HitSketchRepository hitSketchRepository,
+                             HitWatermarkRepository hitWatermarkRepository,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${stats.summaries.flush-interval-ms:1000}") long flushIntervalMs) {
+        this.hitRollupRepository = hitRollupRepository;
+        this.hitSketchRepository = hitSketchRepository;
+        this.hitWatermarkRepository = hitWatermarkRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    /**
+     * Rolls up every hit committed so far. After a failure the transaction is rolled back and the watermark stays
+     * where it was, so the next flush starts over from there.
+     */
+    public void flush() {
+        long committed = hitWatermarkRepository.committedHitId();
+        boolean more = true;
+        while (more) {
+            more = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                Watermark from = hitWatermarkRepository.lock();
+                Watermark to = new Watermark(next(from.rollups(), committed), next(from.sketches(), committed));
+                if (to.equals(from)) {
+                    return false;
+                }
+                if (to.rollups() > from.rollups()) {
+                    hitRollupRepository.rollUp(from.rollups(), to.rollups());
+                }
+                if (to.sketches() > from.sketches()) {
+                    hitSketchRepository.rollUp(from.sketches(), to.sketches());
+                }
+                hitWatermarkRepository.advance(to);
+                return to.rollups() < committed || to.sketches() < committed;
+            }));
+        }
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hit-summary-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // the first flush at once rolls up what a crash left behind
+        scheduler.scheduleWithFixedDelay(this::flushSafely, 0, flushIntervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        flushSafely();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // stop after the web server and the ingestion queue, so the last flush rolls up the hits they still write
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Failed to write hit summaries: {}", e.getMessage());
+        }
+    }
+
+    private static long next(long from, long committed) {
+        return from >= committed ? from : Math.min(committed, from + ROLL_UP_BATCH);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.practicum.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.model.HitEntity;
+import ru.practicum.repository.HitBatchRepository;
+import ru.practicum.repository.HitRepository;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Raw hits in the partitioned {@code hits} table. Totals come from the rollup tables, approximate unique
+ * counts from the daily sketches, exact unique counts from raw hits. Both summaries are built from committed
+ * raw hits by the {@link HitSummaryFlusher}. Streamed totals and exact unique counts
+ * are read through a cursor; approximate ones are merged in memory anyway and are handed over from a list.
+ */
+@Component
+@ConditionalOnProperty(name = "stats.storage", havingValue = "postgres", matchIfMissing = true)
+@RequiredArgsConstructor
+public class PostgresHitStorage implements HitStorage {
+
+    private final HitBatchRepository hitBatchRepository;
+    private final HitRepository hitRepository;
+    private final HitRollupRepository hitRollupRepository;
+    private final HitSketchRepository hitSketchRepository;
+
+    @Override
+    public void saveAll(List<HitEntity> hits) {
+        hitBatchRepository.saveAll(hits);
+    }
+
+    @Override
+    public List<Object[]> findStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return hitRollupRepository.findStats(start, end, uris);
+    }
+
+    @Override
+    public List<Object[]> findUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return hitRepository.findUniqueStats(start, end, uris);
+    }
+
+    @Override
+    public List<Object[]> findApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return hitSketchRepository.findApproximateUniqueStats(start, end, uris);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                            boolean approximate, Consumer<Object[]> consumer) {
+        if (unique && approximate) {
+            findApproximateUniqueStats(start, end, uris).forEach(consumer);
+        } else if (unique) {
+            hitRepository.streamUniqueStats(start, end, uris, consumer);
+        } else {
+            hitRollupRepository.streamStats(start, end, uris, consumer);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.storage.segment;
+
+import java.util.Arrays;
+
+/**
+ * Hits not yet written to a segment, one primitive array per column. Rows are only ever appended, and
+ * growing replaces the arrays instead of changing them, so a {@link #view()} stays valid while writes go on.
+ */
+final class HitColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // epoch seconds are shifted to non-negative values before being packed with a row index for sorting
+    private static final long TIMESTAMP_OFFSET = 1L << 40;
+    private static final int INDEX_BITS = 22;
+
+    static final int MAX_ROWS = 1 << INDEX_BITS;
+
+    long[] timestamps;
+    int[] appIds;
+    int[] uriIds;
+    long[] ipHighs;
+    long[] ipLows;
+    int size;
+
+    HitColumns() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private HitColumns(int capacity) {
+        timestamps = new long[capacity];
+        appIds = new int[capacity];
+        uriIds = new int[capacity];
+        ipHighs = new long[capacity];
+        ipLows = new long[capacity];
+    }
+
+    void add(long timestamp, int appId, int uriId, long ipHigh, long ipLow) {
+        if (size == timestamps.length) {
+            int capacity = Math.min(MAX_ROWS, size * 2);
+            if (capacity == size) {
+                throw new IllegalStateException("Segment buffer is full");
+            }
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            appIds = Arrays.copyOf(appIds, capacity);
+            uriIds = Arrays.copyOf(uriIds, capacity);
+            ipHighs = Arrays.copyOf(ipHighs, capacity);
+            ipLows = Arrays.copyOf(ipLows, capacity);
+        }
+        timestamps[size] = timestamp;
+        appIds[size] = appId;
+        uriIds[size] = uriId;
+        ipHighs[size] = ipHigh;
+        ipLows[size] = ipLow;
+        size++;
+    }
+
+    /**
+     * The rows added so far. Must be taken under the same lock as {@link #add}.
+     */
+    HitColumns view() {
+        HitColumns view = new HitColumns(0);
+        view.timestamps = timestamps;
+        view.appIds = appIds;
+        view.uriIds = uriIds;
+        view.ipHighs = ipHighs;
+        view.ipLows = ipLows;
+        view.size = size;
+        return view;
+    }
+
+    /**
+     * A copy ordered by timestamp, sorted through packed {@code (timestamp, row)} longs to stay off boxed values.
+     */
+    HitColumns sortedByTime() {
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (timestamps[i] + TIMESTAMP_OFFSET) << INDEX_BITS | i;
+        }
+        Arrays.sort(order);
+
+        HitColumns sorted = new HitColumns(Math.max(size, 1));
+        for (long packed : order) {
+            int row = (int) (packed & (MAX_ROWS - 1));
+            sorted.add(timestamps[row], appIds[row], uriIds[row], ipHighs[row], ipLows[row]);
+        }
+        return sorted;
+    }
+
+    void scan(long from, long to, boolean[] uriFilter, StatsAccumulator accumulator) {
+        for (int i = 0; i < size; i++) {
+            long timestamp = timestamps[i];
+            int uriId = uriIds[i];
+            if (timestamp >= from && timestamp <= to && SegmentHitStorage.accepts(uriFilter, uriId)) {
+                accumulator.add(appIds[i], uriId, ipHighs[i], ipLows[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package ru.practicum.storage.segment;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An immutable file of hits sorted by timestamp, read through a memory mapping.
+ * <p>
+ * Layout, big-endian: a 32-byte header (magic, version, row count, padding, min and max timestamp),
+ * then one column after another: timestamps, IP high and low halves as longs, app ids and uri ids as ints.
+ * A range query binary-searches the timestamp column and reads only the rows in range.
+ */
+final class Segment {
+
+    private static final int MAGIC = 0x48495453;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    private final Path path;
+    private final int rows;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final LongBuffer timestamps;
+    private final LongBuffer ipHighs;
+    private final LongBuffer ipLows;
+    private final IntBuffer appIds;
+    private final IntBuffer uriIds;
+
+    private Segment(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a hit segment: " + path);
+        }
+        this.rows = buffer.getInt(8);
+        this.minTimestamp = buffer.getLong(16);
+        this.maxTimestamp = buffer.getLong(24);
+        if (buffer.capacity() != HEADER_BYTES + (long) rows * (3 * Long.BYTES + 2 * Integer.BYTES)) {
+            throw new IOException("Truncated hit segment: " + path);
+        }
+        int offset = HEADER_BYTES;
+        this.timestamps = buffer.slice(offset, rows * Long.BYTES).asLongBuffer();
+        offset += rows * Long.BYTES;
+        this.ipHighs = buffer.slice(offset, rows * Long.BYTES).asLongBuffer();
+        offset += rows * Long.BYTES;
+        this.ipLows = buffer.slice(offset, rows * Long.BYTES).asLongBuffer();
+        offset += rows * Long.BYTES;
+        this.appIds = buffer.slice(offset, rows * Integer.BYTES).asIntBuffer();
+        offset += rows * Integer.BYTES;
+        this.uriIds = buffer.slice(offset, rows * Integer.BYTES).asIntBuffer();
+    }
+
+    static Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Segment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes rows already sorted by timestamp. The file appears under its final name only once complete.
+     */
+    static Segment write(Path path, HitColumns sorted) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(channel), 1 << 16));
+            int rows = sorted.size;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(rows);
+            out.writeInt(0);
+            out.writeLong(rows == 0 ? 0 : sorted.timestamps[0]);
+            out.writeLong(rows == 0 ? 0 : sorted.timestamps[rows - 1]);
+            for (int i = 0; i < rows; i++) {
+                out.writeLong(sorted.timestamps[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeLong(sorted.ipHighs[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeLong(sorted.ipLows[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeInt(sorted.appIds[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                out.writeInt(sorted.uriIds[i]);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    /**
+     * Appends every row, in timestamp order, to {@code into}.
+     */
+    void copyTo(HitColumns into) {
+        for (int i = 0; i < rows; i++) {
+            into.add(timestamps.get(i), appIds.get(i), uriIds.get(i), ipHighs.get(i), ipLows.get(i));
+        }
+    }
+
+    void scan(long from, long to, boolean[] uriFilter, StatsAccumulator accumulator) {
+        if (rows == 0 || to < minTimestamp || from > maxTimestamp) {
+            return;
+        }
+        int end = firstAfter(to);
+        for (int i = firstAfter(from - 1); i < end; i++) {
+            int uriId = uriIds.get(i);
+            if (SegmentHitStorage.accepts(uriFilter, uriId)) {
+                accumulator.add(appIds.get(i), uriId, ipHighs.get(i), ipLows.get(i));
+            }
+        }
+    }
+
+    private int firstAfter(long timestamp) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps.get(middle) <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,121 @@
+package ru.practicum.storage.segment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ids of apps and uris, shared by every segment. Each new name is appended to the file as
+ * {@code (kind, id, length, UTF-8 bytes)} and forced to disk before any hit referring to it is logged.
+ * A record cut short by a crash is dropped when the file is loaded.
+ */
+final class SegmentDictionary implements AutoCloseable {
+
+    private static final byte APP = 0;
+    private static final byte URI = 1;
+    private static final int RECORD_HEADER_BYTES = 1 + Integer.BYTES + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final Names apps = new Names();
+    private final Names uris = new Names();
+
+    SegmentDictionary(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+        while (content.hasRemaining() && channel.read(content) >= 0) {
+            // read the whole file
+        }
+        content.flip();
+        while (content.remaining() >= RECORD_HEADER_BYTES) {
+            int start = content.position();
+            byte kind = content.get();
+            int id = content.getInt();
+            int length = content.getInt();
+            if (length < 0 || content.remaining() < length) {
+                content.position(start);
+                break;
+            }
+            byte[] name = new byte[length];
+            content.get(name);
+            (kind == APP ? apps : uris).put(id, new String(name, StandardCharsets.UTF_8));
+        }
+        channel.truncate(content.position());
+        channel.position(content.position());
+    }
+
+    int appId(String app) {
+        return id(apps, APP, app);
+    }
+
+    int uriId(String uri) {
+        return id(uris, URI, uri);
+    }
+
+    /**
+     * The id of a uri, or 0 when no hit has been stored for it.
+     */
+    int knownUriId(String uri) {
+        return uris.ids.getOrDefault(uri, 0);
+    }
+
+    String app(int id) {
+        return apps.names.get(id);
+    }
+
+    String uri(int id) {
+        return uris.names.get(id);
+    }
+
+    int uriCount() {
+        return uris.names.size();
+    }
+
+    private int id(Names names, byte kind, String name) {
+        Integer id = names.ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = names.ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            int next = names.names.size() + 1;
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + bytes.length)
+                    .put(kind).putInt(next).putInt(bytes.length).put(bytes).flip();
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            names.put(next, name);
+            return next;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static final class Names {
+
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+        void put(int id, String name) {
+            names.put(id, name);
+            ids.put(name, id);
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package ru.practicum.storage.segment;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import ru.practicum.model.HitEntity;
+import ru.practicum.storage.HitStorage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Hits in immutable, memory-mapped column files under {@code stats.segments.directory}, enabled with
+ * {@code stats.storage=segments}.
+ * <p>
+ * New hits go to a write-ahead log and an in-memory buffer. Once the buffer holds
+ * {@code stats.segments.rows-per-segment} hits, or every {@code stats.segments.flush-interval-ms}, it is sorted
+ * by timestamp and written out as {@code segment-<n>.seg}, after which {@code wal-<n>.log} is deleted. On start
+ * the segments are mapped again and logs without a segment are replayed. Queries scan only the timestamp
+ * range of each segment plus the buffer, counting in primitive arrays. The log is forced to disk on every
+ * append unless {@code stats.segments.sync-wal} is off; see {@link WriteAheadLog}.
+ * <p>
+ * After each timed flush, runs of at least {@value #COMPACTION_RUN} adjacent segments smaller than
+ * {@code rows-per-segment} are merged into one time-sorted {@code segment-<first>-<last>.seg} of at most that
+ * many rows, which keeps the number of mapped files and per-query scans small. The merged file replaces its
+ * inputs only once it is complete, and a segment whose numbers another one covers is dropped on start, so a crash
+ * during compaction neither loses nor repeats hits.
+ * <p>
+ * Segments are never expired, and approximate unique counts are the exact ones.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.storage", havingValue = "segments")
+public class SegmentHitStorage implements HitStorage, SmartLifecycle {
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)(?:-(\\d+))?\\.seg");
+    private static final int COMPACTION_RUN = 10;
+    private static final Pattern WAL_FILE = Pattern.compile("wal-(\\d+)\\.log");
+
+    private final Path directory;
+    private final int rowsPerSegment;
+    private final long flushIntervalMs;
+    private final boolean syncWal;
+    private final SegmentDictionary dictionary;
+
+    // replaced, never modified, under the lock; queries read them from a snapshot
+    private List<Segment> segments;
+    private HitColumns buffer = new HitColumns();
+    private WriteAheadLog wal;
+    private long sequence;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    public SegmentHitStorage(@Value("${stats.segments.directory:data/segments}") String directory,
+                             @Value("${stats.segments.rows-per-segment:1000000}") int rowsPerSegment,
+                             @Value("${stats.segments.flush-interval-ms:60000}") long flushIntervalMs,
+                             @Value("${stats.segments.sync-wal:true}") boolean syncWal)
+            throws IOException {
+        if (rowsPerSegment < 1 || rowsPerSegment > HitColumns.MAX_ROWS) {
+            throw new IllegalArgumentException("stats.segments.rows-per-segment must be between 1 and "
+                    + HitColumns.MAX_ROWS);
+        }
+        this.directory = Files.createDirectories(Paths.get(directory));
+        this.rowsPerSegment = rowsPerSegment;
+        this.flushIntervalMs = flushIntervalMs;
+        this.syncWal = syncWal;
+        this.dictionary = new SegmentDictionary(this.directory.resolve("dictionary.dat"));
+        recover();
+    }
+
+    @Override
+    public void saveAll(List<HitEntity> hits) {
+        int count = hits.size();
+        long[] timestamps = new long[count];
+        int[] appIds = new int[count];
+        int[] uriIds = new int[count];
+        long[] ipHighs = new long[count];
+        long[] ipLows = new long[count];
+        for (int i = 0; i < count; i++) {
+            HitEntity hit = hits.get(i);
+            timestamps[i] = hit.getTimestamp().toEpochSecond(ZoneOffset.UTC);
+            appIds[i] = dictionary.appId(hit.getApp());
+            uriIds[i] = dictionary.uriId(hit.getUri());
+            byte[] ip = ipv6Bytes(hit.getIp());
+            ipHighs[i] = toLong(ip, 0);
+            ipLows[i] = toLong(ip, 8);
+        }
+
+        synchronized (this) {
+            int from = buffer.size;
+            for (int i = 0; i < count; i++) {
+                if (buffer.size >= rowsPerSegment) {
+                    appendToLog(from);
+                    flush();
+                    from = 0;
+                }
+                buffer.add(timestamps[i], appIds[i], uriIds[i], ipHighs[i], ipLows[i]);
+            }
+            appendToLog(from);
+            if (buffer.size >= rowsPerSegment) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public List<Object[]> findStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return query(start, end, uris, false);
+    }
+
+    @Override
+    public List<Object[]> findUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return query(start, end, uris, true);
+    }
+
+    @Override
+    public List<Object[]> findApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        return query(start, end, uris, true);
+    }
+
+    /**
+     * Writes the buffered hits out as a segment and starts a new log.
+     */
+    public synchronized void flush() {
+        if (buffer.size == 0) {
+            return;
+        }
+        try {
+            Segment segment = Segment.write(segmentPath(sequence), buffer.sortedByTime());
+            List<Segment> written = new ArrayList<>(segments);
+            written.add(segment);
+            segments = List.copyOf(written);
+            buffer = new HitColumns();
+
+            WriteAheadLog flushed = wal;
+            wal = new WriteAheadLog(walPath(++sequence), syncWal);
+            flushed.close();
+            Files.delete(flushed.path());
+            log.info("Wrote hit segment {} with {} hits", segment.path().getFileName(), segment.rows());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Merges runs of small adjacent segments until none is left.
+     */
+    public void compact() {
+        try {
+            List<Segment> run = nextCompactionRun();
+            while (!run.isEmpty()) {
+                HitColumns merged = new HitColumns();
+                for (Segment segment : run) {
+                    segment.copyTo(merged);
+                }
+                Path path = directory.resolve("segment-" + firstNumber(run.getFirst().path()) + "-"
+                        + lastNumber(run.getLast().path()) + ".seg");
+                Segment compacted = Segment.write(path, merged.sortedByTime());
+                synchronized (this) {
+                    List<Segment> replaced = new ArrayList<>(segments);
+                    int position = replaced.indexOf(run.getFirst());
+                    replaced.removeAll(run);
+                    replaced.add(position, compacted);
+                    segments = List.copyOf(replaced);
+                }
+                for (Segment segment : run) {
+                    Files.delete(segment.path());
+                }
+                log.info("Compacted {} hit segments into {} with {} hits", run.size(), path.getFileName(),
+                        compacted.rows());
+                run = nextCompactionRun();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "hit-segment-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            flushSafely();
+            compactSafely();
+        }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        flushSafely();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // stop after the web server and the ingestion queue, so the hits they still hand over are flushed
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    static boolean accepts(boolean[] uriFilter, int uriId) {
+        return uriFilter == null || uriId < uriFilter.length && uriFilter[uriId];
+    }
+
+    private List<Object[]> query(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        boolean[] uriFilter = null;
+        if (uris != null && !uris.isEmpty()) {
+            uriFilter = new boolean[dictionary.uriCount() + 1];
+            boolean known = false;
+            for (String uri : uris) {
+                int uriId = dictionary.knownUriId(uri);
+                if (uriId > 0 && uriId < uriFilter.length) {
+                    uriFilter[uriId] = true;
+                    known = true;
+                }
+            }
+            if (!known) {
+                return List.of();
+            }
+        }
+
+        List<Segment> segmentsSnapshot;
+        HitColumns bufferSnapshot;
+        synchronized (this) {
+            segmentsSnapshot = segments;
+            bufferSnapshot = buffer.view();
+        }
+
+        long from = start.toEpochSecond(ZoneOffset.UTC);
+        long to = end.toEpochSecond(ZoneOffset.UTC);
+        StatsAccumulator accumulator = new StatsAccumulator(unique);
+        for (Segment segment : segmentsSnapshot) {
+            segment.scan(from, to, uriFilter, accumulator);
+        }
+        bufferSnapshot.scan(from, to, uriFilter, accumulator);
+        return accumulator.rows(dictionary);
+    }
+
+    /**
+     * The first {@value #COMPACTION_RUN} or more adjacent segments below {@code rows-per-segment} that fit into one
+     * segment together, or an empty list.
+     */
+    private List<Segment> nextCompactionRun() {
+        List<Segment> snapshot;
+        synchronized (this) {
+            snapshot = segments;
+        }
+        List<Segment> run = new ArrayList<>();
+        long rows = 0;
+        for (Segment segment : snapshot) {
+            boolean small = segment.rows() < rowsPerSegment;
+            if (small && rows + segment.rows() <= rowsPerSegment) {
+                run.add(segment);
+                rows += segment.rows();
+                continue;
+            }
+            if (run.size() >= COMPACTION_RUN) {
+                return run;
+            }
+            run.clear();
+            rows = 0;
+            if (small) {
+                run.add(segment);
+                rows = segment.rows();
+            }
+        }
+        return run.size() >= COMPACTION_RUN ? run : List.of();
+    }
+
+    private void appendToLog(int from) {
+        try {
+            wal.append(buffer, from);
+        } catch (IOException e) {
+            buffer.size = from;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps the segments and replays the logs that have none. A log numbered at or below the last segment was
+     * already written out before a crash and is only deleted, as is a segment whose numbers a compacted one covers.
+     */
+    private void recover() throws IOException {
+        List<Path> segmentFiles = new ArrayList<>();
+        TreeMap<Long, Path> walFiles = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                Matcher segmentName = SEGMENT_FILE.matcher(name);
+                Matcher walName = WAL_FILE.matcher(name);
+                if (segmentName.matches()) {
+                    segmentFiles.add(file);
+                } else if (walName.matches()) {
+                    walFiles.put(Long.parseLong(walName.group(1)), file);
+                } else if (name.endsWith(".tmp")) {
+                    Files.delete(file);
+                }
+            }
+        }
+
+        segmentFiles.sort(Comparator.comparingLong(SegmentHitStorage::firstNumber)
+                .thenComparing(Comparator.comparingLong(SegmentHitStorage::lastNumber).reversed()));
+        List<Segment> opened = new ArrayList<>();
+        long lastSegment = 0;
+        for (Path file : segmentFiles) {
+            if (lastNumber(file) <= lastSegment) {
+                // inputs of a compaction that crashed before deleting them
+                Files.delete(file);
+            } else {
+                opened.add(Segment.open(file));
+                lastSegment = lastNumber(file);
+            }
+        }
+        segments = List.copyOf(opened);
+
+        List<Path> replayed = new ArrayList<>();
+        for (var entry : walFiles.entrySet()) {
+            if (entry.getKey() <= lastSegment) {
+                Files.delete(entry.getValue());
+            } else {
+                WriteAheadLog.replay(entry.getValue(), buffer);
+                replayed.add(entry.getValue());
+            }
+        }
+
+        sequence = Math.max(lastSegment, walFiles.isEmpty() ? 0 : walFiles.lastKey());
+        if (buffer.size > 0) {
+            // numbered after the last replayed log, so a crash before the logs are deleted does not replay them again
+            opened.add(Segment.write(segmentPath(sequence), buffer.sortedByTime()));
+            segments = List.copyOf(opened);
+            log.info("Recovered {} hits from {} write-ahead logs", buffer.size, replayed.size());
+            buffer = new HitColumns();
+        }
+        for (Path file : replayed) {
+            Files.delete(file);
+        }
+        wal = new WriteAheadLog(walPath(++sequence), syncWal);
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Failed to write hit segment: {}", e.getMessage());
+        }
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.warn("Failed to compact hit segments: {}", e.getMessage());
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve("segment-" + number + ".seg");
+    }
+
+    private Path walPath(long number) {
+        return directory.resolve("wal-" + number + ".log");
+    }
+
+    private static long firstNumber(Path segment) {
+        Matcher name = SEGMENT_FILE.matcher(segment.getFileName().toString());
+        if (!name.matches()) {
+            throw new IllegalArgumentException("Not a segment file: " + segment);
+        }
+        return Long.parseLong(name.group(1));
+    }
+
+    private static long lastNumber(Path segment) {
+        Matcher name = SEGMENT_FILE.matcher(segment.getFileName().toString());
+        if (!name.matches()) {
+            throw new IllegalArgumentException("Not a segment file: " + segment);
+        }
+        return Long.parseLong(name.group(name.group(2) != null ? 2 : 1));
+    }
+
+    /**
+     * The address as 16 bytes, IPv4 mapped into IPv6 ({@code ::ffff:a.b.c.d}). Stored IPs are already canonical
+     * literals, so no name lookup happens.
+     */
+    private static byte[] ipv6Bytes(String ip) {
+        try {
+            InetAddress address = InetAddress.getByName(ip);
+            if (address instanceof Inet4Address) {
+                byte[] v4 = address.getAddress();
+                byte[] mapped = new byte[16];
+                mapped[10] = (byte) 0xFF;
+                mapped[11] = (byte) 0xFF;
+                System.arraycopy(v4, 0, mapped, 12, 4);
+                return mapped;
+            }
+            return address.getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid IP address: " + ip, e);
+        }
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + Long.BYTES; i++) {
+            value = value << 8 | bytes[i] & 0xFF;
+        }
+        return value;
+    }
+}
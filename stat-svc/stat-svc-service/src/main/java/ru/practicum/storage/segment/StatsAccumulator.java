@@ -0,0 +1,139 @@
+package ru.practicum.storage.segment;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Hit counts per (app, uri) pair, optionally counting each IP once. Open addressing over primitive arrays
+ * keeps a scan of millions of rows from allocating per row.
+ */
+final class StatsAccumulator {
+
+    private final boolean unique;
+    private long[] keys = new long[64];
+    private long[] counts = new long[64];
+    private IpSet[] ips;
+    private int size;
+
+    StatsAccumulator(boolean unique) {
+        this.unique = unique;
+        this.ips = unique ? new IpSet[64] : null;
+    }
+
+    void add(int appId, int uriId, long ipHigh, long ipLow) {
+        // ids start at 1, so a key is never 0, the empty slot marker
+        long key = (long) appId << 32 | uriId & 0xFFFFFFFFL;
+        int slot = slot(keys, key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            if (unique) {
+                ips[slot] = new IpSet();
+            }
+            if (++size * 2 > keys.length) {
+                grow();
+                slot = slot(keys, key);
+            }
+        }
+        if (!unique || ips[slot].add(ipHigh, ipLow)) {
+            counts[slot]++;
+        }
+    }
+
+    List<Object[]> rows(SegmentDictionary dictionary) {
+        List<Object[]> rows = new ArrayList<>(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                rows.add(new Object[]{
+                        dictionary.app((int) (keys[i] >>> 32)),
+                        dictionary.uri((int) keys[i]),
+                        counts[i]
+                });
+            }
+        }
+        rows.sort(Comparator.comparingLong((Object[] row) -> (Long) row[2]).reversed());
+        return rows;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        IpSet[] oldIps = ips;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[keys.length];
+        ips = unique ? new IpSet[keys.length] : null;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                if (unique) {
+                    ips[slot] = oldIps[i];
+                }
+            }
+        }
+    }
+
+    private static int slot(long[] table, long key) {
+        int mask = table.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (table[slot] != 0 && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * 128-bit addresses as pairs of longs. The all-zero address, the empty slot marker, is tracked apart.
+     */
+    private static final class IpSet {
+
+        private long[] highs = new long[8];
+        private long[] lows = new long[8];
+        private boolean containsZero;
+        private int size;
+
+        boolean add(long high, long low) {
+            if (high == 0 && low == 0) {
+                if (containsZero) {
+                    return false;
+                }
+                containsZero = true;
+                return true;
+            }
+            int slot = slot(highs, lows, high, low);
+            if (highs[slot] != 0 || lows[slot] != 0) {
+                return false;
+            }
+            highs[slot] = high;
+            lows[slot] = low;
+            if (++size * 2 > highs.length) {
+                grow();
+            }
+            return true;
+        }
+
+        private void grow() {
+            long[] oldHighs = highs;
+            long[] oldLows = lows;
+            highs = new long[oldHighs.length * 2];
+            lows = new long[highs.length];
+            for (int i = 0; i < oldHighs.length; i++) {
+                if (oldHighs[i] != 0 || oldLows[i] != 0) {
+                    int slot = slot(highs, lows, oldHighs[i], oldLows[i]);
+                    highs[slot] = oldHighs[i];
+                    lows[slot] = oldLows[i];
+                }
+            }
+        }
+
+        private static int slot(long[] highs, long[] lows, long high, long low) {
+            int mask = highs.length - 1;
+            int slot = Long.hashCode((high * 31 + low) * 0x9E3779B97F4A7C15L) & mask;
+            while ((highs[slot] != 0 || lows[slot] != 0) && (highs[slot] != high || lows[slot] != low)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ru.practicum.storage.segment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Hits accepted since the last segment was written, as fixed-size records
+ * {@code (timestamp, app id, uri id, ip high, ip low)}. A record cut short by a crash is ignored on replay.
+ * <p>
+ * With {@code sync} every append is forced to the device before it returns, so accepted hits survive a power
+ * loss. Without it they are in the page cache only: they survive a crash of the service, not of the machine.
+ */
+final class WriteAheadLog implements AutoCloseable {
+
+    private static final int RECORD_BYTES = Long.BYTES + 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final boolean sync;
+
+    WriteAheadLog(Path path, boolean sync) throws IOException {
+        this.path = path;
+        this.sync = sync;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Appends rows {@code from} to {@code columns.size} with a single write.
+     */
+    void append(HitColumns columns, int from) throws IOException {
+        ByteBuffer records = ByteBuffer.allocate((columns.size - from) * RECORD_BYTES);
+        for (int i = from; i < columns.size; i++) {
+            records.putLong(columns.timestamps[i])
+                    .putInt(columns.appIds[i])
+                    .putInt(columns.uriIds[i])
+                    .putLong(columns.ipHighs[i])
+                    .putLong(columns.ipLows[i]);
+        }
+        records.flip();
+        while (records.hasRemaining()) {
+            channel.write(records);
+        }
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    static void replay(Path path, HitColumns into) throws IOException {
+        ByteBuffer records = ByteBuffer.wrap(Files.readAllBytes(path));
+        while (records.remaining() >= RECORD_BYTES) {
+            into.add(records.getLong(), records.getInt(), records.getInt(), records.getLong(), records.getLong());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
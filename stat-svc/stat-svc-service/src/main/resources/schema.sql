@@ -1,11 +1,157 @@
+-- hits used to be one plain table; move it aside so that its rows can be copied into the partitioned one
+DO '
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = to_regclass(''hits'')) = ''r'' THEN
+        ALTER TABLE hits RENAME TO hits_unpartitioned;
+        DROP INDEX IF EXISTS idx_hits_app_uri, idx_hits_timestamp, idx_hits_ip;
+    END IF;
+END';
+
+-- app names and uris repeat on millions of hits; rows keep these integer keys instead
+CREATE TABLE IF NOT EXISTS hit_apps (
+    id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS hit_uris (
+    id INTEGER GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    uri VARCHAR(512) NOT NULL UNIQUE
+);
+
+-- partitioned hits that still store app, uri and ip as text are converted in place;
+-- IPs that are not valid IPv4 literals (all VARCHAR(15) could hold) become 0.0.0.0
+DO '
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = ''hits'' AND column_name = ''uri'') THEN
+        INSERT INTO hit_apps (name) SELECT DISTINCT app FROM hits ORDER BY 1 ON CONFLICT DO NOTHING;
+        INSERT INTO hit_uris (uri) SELECT DISTINCT uri FROM hits ORDER BY 1 ON CONFLICT DO NOTHING;
+        ALTER TABLE hits ADD COLUMN app_id INTEGER, ADD COLUMN uri_id INTEGER;
+        UPDATE hits h SET app_id = a.id, uri_id = u.id
+        FROM hit_apps a, hit_uris u WHERE a.name = h.app AND u.uri = h.uri;
+        DROP INDEX IF EXISTS idx_hits_uri_timestamp;
+        ALTER TABLE hits
+            ALTER COLUMN app_id SET NOT NULL,
+            ALTER COLUMN uri_id SET NOT NULL,
+            DROP COLUMN app,
+            DROP COLUMN uri,
+            ALTER COLUMN ip TYPE INET USING CASE WHEN ip ~ ''^((25[0-5]|2[0-4][0-9]|1?[0-9]?[0-9])\.){3}(25[0-5]|2[0-4][0-9]|1?[0-9]?[0-9])$'' THEN ip::inet ELSE ''0.0.0.0''::inet END;
+    END IF;
+END';
+
+-- range partitions by timestamp are created and dropped by HitPartitionMaintenance;
+-- rows outside all of them land in hits_default until their partition exists
 CREATE TABLE IF NOT EXISTS hits (
-    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    id BIGINT GENERATED ALWAYS AS IDENTITY,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip INET NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_hits_uri_id_timestamp ON hits (uri_id, timestamp);
+
+-- the old rows are copied straight into monthly partitions created for the months they cover, so that
+-- hits_default stays empty and HitPartitionMaintenance has nothing to move
+DO '
+DECLARE
+    period TIMESTAMP;
+BEGIN
+    IF to_regclass(''hits_unpartitioned'') IS NOT NULL THEN
+        FOR period IN SELECT DISTINCT date_trunc(''month'', timestamp) FROM hits_unpartitioned LOOP
+            IF to_regclass(''hits_p'' || to_char(period, ''YYYY_MM'')) IS NULL THEN
+                EXECUTE format(''CREATE TABLE %I PARTITION OF hits FOR VALUES FROM (%L) TO (%L)'',
+                               ''hits_p'' || to_char(period, ''YYYY_MM''), period, period + INTERVAL ''1 month'');
+            END IF;
+        END LOOP;
+        INSERT INTO hit_apps (name) SELECT DISTINCT app FROM hits_unpartitioned ORDER BY 1 ON CONFLICT DO NOTHING;
+        INSERT INTO hit_uris (uri) SELECT DISTINCT uri FROM hits_unpartitioned ORDER BY 1 ON CONFLICT DO NOTHING;
+        INSERT INTO hits (id, app_id, uri_id, ip, timestamp) OVERRIDING SYSTEM VALUE
+        SELECT h.id, a.id, u.id, CASE WHEN h.ip ~ ''^((25[0-5]|2[0-4][0-9]|1?[0-9]?[0-9])\.){3}(25[0-5]|2[0-4][0-9]|1?[0-9]?[0-9])$'' THEN h.ip::inet ELSE ''0.0.0.0''::inet END, h.timestamp
+        FROM hits_unpartitioned h
+        JOIN hit_apps a ON a.name = h.app
+        JOIN hit_uris u ON u.uri = h.uri;
+        PERFORM setval(pg_get_serial_sequence(''hits'', ''id''), (SELECT MAX(id) FROM hits_unpartitioned));
+        DROP TABLE hits_unpartitioned;
+    END IF;
+END';
+
+CREATE TABLE IF NOT EXISTS hits_minutely (
+    uri VARCHAR(512) NOT NULL,
     app VARCHAR(255) NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (uri, app, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS hits_hourly (
     uri VARCHAR(512) NOT NULL,
-    ip VARCHAR(15) NOT NULL,
-    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL
+    app VARCHAR(255) NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (uri, app, bucket)
+);
+
+CREATE TABLE IF NOT EXISTS hits_daily (
+    uri VARCHAR(512) NOT NULL,
+    app VARCHAR(255) NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (uri, app, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_minutely_bucket ON hits_minutely (bucket);
+CREATE INDEX IF NOT EXISTS idx_hits_hourly_bucket ON hits_hourly (bucket);
+CREATE INDEX IF NOT EXISTS idx_hits_daily_bucket ON hits_daily (bucket);
+
+-- id of the last raw hit counted in the rollups; HitSummaryFlusher advances it with every rollup upsert.
+-- When it is created, rollups of everything still stored as raw hits are rebuilt from them, which also
+-- covers databases that had raw hits before the rollups existed. Counts of older, already dropped
+-- partitions are kept.
+DO '
+BEGIN
+    IF to_regclass(''hit_summary_watermark'') IS NULL THEN
+        CREATE TABLE hit_summary_watermark (
+            id SMALLINT PRIMARY KEY CHECK (id = 1),
+            last_hit_id BIGINT NOT NULL
+        );
+        LOCK TABLE hits IN SHARE MODE;
+        DELETE FROM hits_minutely WHERE bucket >= (SELECT date_trunc(''minute'', MIN(timestamp)) FROM hits);
+        DELETE FROM hits_hourly WHERE bucket >= (SELECT date_trunc(''hour'', MIN(timestamp)) FROM hits);
+        DELETE FROM hits_daily WHERE bucket >= (SELECT date_trunc(''day'', MIN(timestamp)) FROM hits);
+        INSERT INTO hits_minutely (uri, app, bucket, hits)
+        SELECT u.uri, a.name, date_trunc(''minute'', h.timestamp), COUNT(*) FROM hits h
+        JOIN hit_apps a ON a.id = h.app_id
+        JOIN hit_uris u ON u.id = h.uri_id
+        GROUP BY 1, 2, 3;
+        INSERT INTO hits_hourly (uri, app, bucket, hits)
+        SELECT u.uri, a.name, date_trunc(''hour'', h.timestamp), COUNT(*) FROM hits h
+        JOIN hit_apps a ON a.id = h.app_id
+        JOIN hit_uris u ON u.id = h.uri_id
+        GROUP BY 1, 2, 3;
+        INSERT INTO hits_daily (uri, app, bucket, hits)
+        SELECT u.uri, a.name, date_trunc(''day'', h.timestamp), COUNT(*) FROM hits h
+        JOIN hit_apps a ON a.id = h.app_id
+        JOIN hit_uris u ON u.id = h.uri_id
+        GROUP BY 1, 2, 3;
+        INSERT INTO hit_summary_watermark (id, last_hit_id) SELECT 1, COALESCE(MAX(id), 0) FROM hits;
+    END IF;
+END';
+
+CREATE TABLE IF NOT EXISTS hits_daily_hll (
+    uri VARCHAR(512) NOT NULL,
+    app VARCHAR(255) NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (uri, app, bucket)
 );
 
-CREATE INDEX IF NOT EXISTS idx_hits_app_uri ON hits (app, uri);
-CREATE INDEX IF NOT EXISTS idx_hits_timestamp ON hits (timestamp);
-CREATE INDEX IF NOT EXISTS idx_hits_ip ON hits (ip);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_hits_daily_hll_bucket ON hits_daily_hll (bucket);
+
+-- id of the last raw hit merged into the daily sketches; it starts at zero, so HitSummaryFlusher merges every
+-- raw hit still stored once, which also covers databases that had raw hits before the sketches existed.
+-- Merging is idempotent, so visitors already in the sketches are not counted twice
+ALTER TABLE hit_summary_watermark ADD COLUMN IF NOT EXISTS last_sketch_hit_id BIGINT NOT NULL DEFAULT 0;
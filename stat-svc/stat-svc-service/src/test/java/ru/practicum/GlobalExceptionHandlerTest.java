@@ -2,10 +2,12 @@ package ru.practicum;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import ru.practicum.exception.DateValidationException;
 import ru.practicum.exception.GlobalExceptionHandler;
+import ru.practicum.exception.IngestionOverloadedException;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -35,4 +37,20 @@ class GlobalExceptionHandlerTest {
         assertThat(response.getBody()).containsKey("timestamp");
         assertThat(response.getBody().get("timestamp")).isInstanceOf(LocalDateTime.class);
     }
+
+    @Test
+    void handleIngestionOverloaded_ShouldReturnServiceUnavailable() {
+        // Given
+        IngestionOverloadedException exception = new IngestionOverloadedException("Hit queue is full, retry later");
+
+        // When
+        ResponseEntity<Map<String, Object>> response = handler.handleIngestionOverloaded(exception);
+
+        // Then
+        Assertions.assertNotNull(response.getBody());
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getBody()).containsEntry("status", 503);
+        assertThat(response.getBody()).containsEntry("message", "Hit queue is full, retry later");
+    }
 }
\ No newline at end of file
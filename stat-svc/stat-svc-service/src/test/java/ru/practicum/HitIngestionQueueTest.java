@@ -0,0 +1,135 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.exception.IngestionOverloadedException;
+import ru.practicum.model.HitEntity;
+import ru.practicum.service.HitIngestionQueue;
+import ru.practicum.storage.HitStorage;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitIngestionQueueTest {
+
+    @Mock
+    private HitStorage hitStorage;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HitIngestionQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void isEnabled_WhenModeIsSync_ShouldBeFalseAndNotStartWriter() {
+        // Given
+        queue = new HitIngestionQueue(hitStorage, meterRegistry, "sync", 10, 10, 50, 10);
+
+        // When
+        queue.start();
+
+        // Then
+        assertFalse(queue.isEnabled());
+        assertFalse(queue.isRunning());
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldRejectHit() {
+        // Given
+        queue = new HitIngestionQueue(hitStorage, meterRegistry, "async", 2, 10, 50, 10);
+        queue.submit(hit("/a"));
+        queue.submit(hit("/b"));
+
+        // When & Then
+        assertThrows(IngestionOverloadedException.class, () -> queue.submit(hit("/c")));
+        assertEquals(2, queue.size());
+        assertEquals(2.0, meterRegistry.get("stats.ingestion.queue.depth").gauge().value());
+        assertEquals(1.0, meterRegistry.get("stats.ingestion.rejected").counter().count());
+    }
+
+    @Test
+    void start_ShouldFlushBatchOfConfiguredSize() {
+        // Given
+        queue = new HitIngestionQueue(hitStorage, meterRegistry, "async", 100, 3, 60_000, 10);
+        queue.submit(hit("/a"));
+        queue.submit(hit("/b"));
+        queue.submit(hit("/c"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<HitEntity>> captor = ArgumentCaptor.forClass(List.class);
+
+        // When
+        queue.start();
+
+        // Then
+        verify(hitStorage, timeout(2000)).saveAll(captor.capture());
+        assertEquals(List.of("/a", "/b", "/c"), captor.getValue().stream().map(HitEntity::getUri).toList());
+        assertEquals(1L, meterRegistry.get("stats.ingestion.flush").timer().count());
+    }
+
+    @Test
+    void start_ShouldFlushPartialBatchAfterInterval() {
+        // Given
+        queue = new HitIngestionQueue(hitStorage, meterRegistry, "async", 100, 500, 50, 10);
+        queue.start();
+
+        // When
+        queue.submit(hit("/a"));
+
+        // Then
+        verify(hitStorage, timeout(2000)).saveAll(anyList());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void stop_ShouldDrainRemainingHits() {
+        // Given
+        queue = new HitIngestionQueue(hitStorage, meterRegistry, "async", 100, 500, 60_000, 10);
+        queue.start();
+        queue.submit(hit("/a"));
+        queue.submit(hit("/b"));
+
+        // When
+        queue.stop();
+
+        // Then
+        verify(hitStorage).saveAll(argThat(batch -> batch.size() == 2));
+        assertEquals(2.0, meterRegistry.get("stats.ingestion.flushed").counter().count());
+    }
+
+    @Test
+    void submit_AfterStop_ShouldRejectHit() {
+        // Given
+        queue = new HitIngestionQueue(hitStorage, meterRegistry, "async", 100, 500, 60_000, 10);
+        queue.start();
+        queue.stop();
+
+        // When
+        assertThrows(IngestionOverloadedException.class, () -> queue.submit(hit("/late")));
+
+        // Then
+        assertEquals(0, queue.size());
+        assertEquals(1.0, meterRegistry.get("stats.ingestion.rejected").counter().count());
+        verifyNoInteractions(hitStorage);
+    }
+
+    private static HitEntity hit(String uri) {
+        return new HitEntity(null, "app", uri, "127.0.0.1", LocalDateTime.of(2023, 10, 20, 10, 0));
+    }
+}
@@ -0,0 +1,40 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.repository.HitPartition;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HitPartitionTest {
+
+    @Test
+    void containing_ShouldCoverWholeMonthOrDay() {
+        // Given
+        LocalDateTime time = LocalDateTime.of(2024, 12, 31, 23, 59, 59);
+
+        // When
+        HitPartition month = HitPartition.containing(time, HitPartition.Granularity.MONTH);
+        HitPartition day = HitPartition.containing(time, HitPartition.Granularity.DAY);
+
+        // Then
+        assertEquals(new HitPartition("hits_p2024_12",
+                LocalDateTime.of(2024, 12, 1, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0)), month);
+        assertEquals(new HitPartition("hits_p2024_12_31",
+                LocalDateTime.of(2024, 12, 31, 0, 0), LocalDateTime.of(2025, 1, 1, 0, 0)), day);
+        assertTrue(month.overlaps(day));
+        assertFalse(month.overlaps(HitPartition.containing(month.to(), HitPartition.Granularity.DAY)));
+    }
+
+    @Test
+    void parse_ShouldRestoreBoundsFromName() {
+        // When & Then
+        assertEquals(Optional.of(HitPartition.containing(LocalDateTime.of(2024, 2, 1, 0, 0),
+                HitPartition.Granularity.MONTH)), HitPartition.parse("hits_p2024_02"));
+        assertEquals(Optional.of(HitPartition.containing(LocalDateTime.of(2024, 2, 29, 0, 0),
+                HitPartition.Granularity.DAY)), HitPartition.parse("hits_p2024_02_29"));
+        assertEquals(Optional.empty(), HitPartition.parse("hits_default"));
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs schema.sql against a database that still has the original unpartitioned {@code hits} table.
+ */
+class HitSchemaMigrationTest {
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    static void startDatabase() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void schema_WhenHitsAreUnpartitioned_ShouldCopyRowsIntoMonthlyPartitions() {
+        // Given
+        jdbcTemplate.execute("""
+                CREATE TABLE hits (
+                    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+                    app VARCHAR(255) NOT NULL,
+                    uri VARCHAR(512) NOT NULL,
+                    ip VARCHAR(15) NOT NULL,
+                    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL
+                )""");
+        jdbcTemplate.update("""
+                INSERT INTO hits (app, uri, ip, timestamp) VALUES
+                    ('ewm-main-service', '/events/1', '10.0.0.1', '2023-11-30 23:59:59'),
+                    ('ewm-main-service', '/events/1', '10.0.0.2', '2023-12-01 00:00:00'),
+                    ('ewm-main-service', '/events/2', 'not an ip', '2024-02-10 12:00:00')""");
+
+        // When
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(postgres.getPostgresDatabase());
+
+        // Then
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits_default", Long.class));
+        assertEquals(List.of("hits_p2023_11", "hits_p2023_12", "hits_p2024_02"), jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'hits'::regclass AND c.relname <> 'hits_default' ORDER BY 1""", String.class));
+        assertEquals(List.of(1L, 1L, 1L), jdbcTemplate.queryForList("""
+                SELECT COUNT(*) FROM hits GROUP BY tableoid ORDER BY MIN(timestamp)""", Long.class));
+        assertEquals("0.0.0.0", jdbcTemplate.queryForObject(
+                "SELECT host(ip) FROM hits WHERE timestamp = '2024-02-10 12:00:00'", String.class));
+        assertNull(jdbcTemplate.queryForObject("SELECT to_regclass('hits_unpartitioned')", String.class));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT SUM(hits) FROM hits_daily", Long.class));
+    }
+}
@@ -0,0 +1,133 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
+import ru.practicum.repository.HitWatermarkRepository;
+import ru.practicum.repository.HitWatermarkRepository.Watermark;
+import ru.practicum.storage.HitSummaryFlusher;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HitSummaryFlusherTest {
+
+    @Mock
+    private HitRollupRepository hitRollupRepository;
+
+    @Mock
+    private HitSketchRepository hitSketchRepository;
+
+    @Mock
+    private HitWatermarkRepository hitWatermarkRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void flush_ShouldRollUpCommittedHitsInBatchesAndAdvanceWatermark() {
+        // Given
+        HitSummaryFlusher flusher = flusher();
+        when(hitWatermarkRepository.committedHitId()).thenReturn(250_000L);
+        when(hitWatermarkRepository.lock()).thenReturn(
+                new Watermark(0, 0), new Watermark(100_000, 100_000), new Watermark(200_000, 200_000));
+
+        // When
+        flusher.flush();
+
+        // Then
+        InOrder inOrder = inOrder(hitRollupRepository, hitSketchRepository, hitWatermarkRepository);
+        inOrder.verify(hitRollupRepository).rollUp(0, 100_000);
+        inOrder.verify(hitSketchRepository).rollUp(0, 100_000);
+        inOrder.verify(hitWatermarkRepository).advance(new Watermark(100_000, 100_000));
+        inOrder.verify(hitRollupRepository).rollUp(100_000, 200_000);
+        inOrder.verify(hitSketchRepository).rollUp(100_000, 200_000);
+        inOrder.verify(hitWatermarkRepository).advance(new Watermark(200_000, 200_000));
+        inOrder.verify(hitRollupRepository).rollUp(200_000, 250_000);
+        inOrder.verify(hitSketchRepository).rollUp(200_000, 250_000);
+        inOrder.verify(hitWatermarkRepository).advance(new Watermark(250_000, 250_000));
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void flush_WhenSketchesLagBehind_ShouldCatchThemUpAlone() {
+        // Given
+        HitSummaryFlusher flusher = flusher();
+        when(hitWatermarkRepository.committedHitId()).thenReturn(150_000L);
+        when(hitWatermarkRepository.lock()).thenReturn(
+                new Watermark(150_000, 0), new Watermark(150_000, 100_000));
+
+        // When
+        flusher.flush();
+
+        // Then
+        verify(hitRollupRepository, never()).rollUp(anyLong(), anyLong());
+        verify(hitSketchRepository).rollUp(0, 100_000);
+        verify(hitSketchRepository).rollUp(100_000, 150_000);
+        verify(hitWatermarkRepository).advance(new Watermark(150_000, 150_000));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void flush_WhenWatermarkIsCurrent_ShouldNotRollUp() {
+        // Given
+        HitSummaryFlusher flusher = flusher();
+        when(hitWatermarkRepository.committedHitId()).thenReturn(42L);
+        when(hitWatermarkRepository.lock()).thenReturn(new Watermark(42, 42));
+
+        // When
+        flusher.flush();
+
+        // Then
+        verify(hitRollupRepository, never()).rollUp(anyLong(), anyLong());
+        verify(hitSketchRepository, never()).rollUp(anyLong(), anyLong());
+        verify(hitWatermarkRepository, never()).advance(any());
+    }
+
+    @Test
+    void flush_WhenRollUpFails_ShouldLeaveWatermark() {
+        // Given
+        HitSummaryFlusher flusher = flusher();
+        when(hitWatermarkRepository.committedHitId()).thenReturn(10L);
+        when(hitWatermarkRepository.lock()).thenReturn(new Watermark(0, 0));
+        doThrow(new IllegalStateException("database is down")).when(hitSketchRepository).rollUp(0, 10);
+
+        // When
+        assertThrows(IllegalStateException.class, flusher::flush);
+
+        // Then
+        verify(transactionManager).rollback(any());
+        verify(hitWatermarkRepository, never()).advance(any());
+    }
+
+    @Test
+    void stop_ShouldRollUpCommittedHits() {
+        // Given
+        HitSummaryFlusher flusher = flusher();
+        when(hitWatermarkRepository.committedHitId()).thenReturn(5L);
+        when(hitWatermarkRepository.lock()).thenReturn(new Watermark(0, 0), new Watermark(5, 5));
+        flusher.start();
+
+        // When
+        flusher.stop();
+
+        // Then
+        assertFalse(flusher.isRunning());
+        verify(hitRollupRepository, timeout(5_000)).rollUp(0, 5);
+        verify(hitWatermarkRepository, timeout(5_000)).advance(new Watermark(5, 5));
+    }
+
+    private HitSummaryFlusher flusher() {
+        return new HitSummaryFlusher(hitRollupRepository, hitSketchRepository, hitWatermarkRepository,
+                new TransactionTemplate(transactionManager), 60_000);
+    }
+}
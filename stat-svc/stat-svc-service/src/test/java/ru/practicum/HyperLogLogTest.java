@@ -0,0 +1,89 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.sketch.HyperLogLog;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_ShouldStayWithinErrorBound() {
+        for (int cardinality : new int[]{10, 1_000, 100_000}) {
+            // Given
+            HyperLogLog sketch = new HyperLogLog();
+
+            // When
+            for (int i = 0; i < cardinality; i++) {
+                sketch.add(ip(i));
+                sketch.add(ip(i));
+            }
+
+            // Then
+            double error = Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+            assertTrue(error < 3 * HyperLogLog.RELATIVE_ERROR,
+                    "cardinality " + cardinality + " estimated as " + sketch.estimate());
+        }
+    }
+
+    @Test
+    void merge_ShouldEstimateUnionWithoutDoubleCounting() {
+        // Given
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 6_000; i++) {
+            first.add(ip(i));
+        }
+        for (int i = 4_000; i < 10_000; i++) {
+            second.add(ip(i));
+        }
+
+        // When
+        first.merge(second);
+
+        // Then
+        assertEquals(10_000, first.estimate(), 10_000 * 3 * HyperLogLog.RELATIVE_ERROR);
+    }
+
+    @Test
+    void toBytes_WithFewValues_ShouldUseCompactFormatAndRoundTrip() {
+        // Given
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 5; i++) {
+            sketch.add(ip(i));
+        }
+
+        // When
+        byte[] bytes = sketch.toBytes();
+
+        // Then
+        assertTrue(bytes.length < 100);
+        assertArrayEquals(bytes, HyperLogLog.fromBytes(bytes).toBytes());
+        assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+    }
+
+    @Test
+    void toBytes_WithManyValues_ShouldRoundTrip() {
+        // Given
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 50_000; i++) {
+            sketch.add(ip(i));
+        }
+
+        // When
+        byte[] bytes = sketch.toBytes();
+
+        // Then
+        assertEquals(HyperLogLog.REGISTERS + 1, bytes.length);
+        assertEquals(sketch.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+    }
+
+    @Test
+    void fromBytes_WithUnknownFormat_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{7}));
+    }
+
+    private static String ip(int i) {
+        return "10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff);
+    }
+}
@@ -0,0 +1,272 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.HitEntity;
+import ru.practicum.repository.HitBatchRepository;
+import ru.practicum.storage.HitSummaryFlusher;
+import ru.practicum.storage.PostgresHitStorage;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostgresHitStorageTest extends EmbeddedPostgresTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @Autowired
+    private PostgresHitStorage storage;
+
+    @Autowired
+    private HitSummaryFlusher hitSummaryFlusher;
+
+    @Autowired
+    private HitBatchRepository hitBatchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void findStats_ShouldCountFlushedHitsFromRollups() {
+        // Given
+        String uri = uniqueUri();
+        storage.saveAll(List.of(
+                hit(uri, "10.0.0.1", DAY.plusHours(1)),
+                hit(uri, "10.0.0.1", DAY.plusDays(1).plusHours(2)),
+                hit(uri, "10.0.0.2", DAY.plusDays(2).plusMinutes(3))));
+        hitSummaryFlusher.flush();
+        storage.saveAll(List.of(hit(uri, "10.0.0.3", DAY.plusDays(1).plusHours(5))));
+        hitSummaryFlusher.flush();
+
+        // When
+        List<Object[]> stats = storage.findStats(DAY, DAY.plusDays(3), List.of(uri));
+        List<Object[]> approximate = storage.findApproximateUniqueStats(DAY, DAY.plusDays(3), List.of(uri));
+
+        // Then
+        assertRow(stats, uri, 4L);
+        assertRow(approximate, uri, 3L);
+    }
+
+    @Test
+    void findStats_ShouldCountRecentHitsBeforeTheyAreFlushed() {
+        // Given
+        String uri = uniqueUri();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        storage.saveAll(List.of(
+                hit(uri, "10.0.0.1", now.minusSeconds(1)),
+                hit(uri, "10.0.0.2", now)));
+
+        // When
+        List<Object[]> stats = storage.findStats(now.minusDays(2), now, List.of(uri));
+        List<Object[]> approximate = storage.findApproximateUniqueStats(now.minusDays(2), now, List.of(uri));
+
+        // Then
+        assertRow(stats, uri, 2L);
+        assertRow(approximate, uri, 2L);
+    }
+
+    @Test
+    void findStats_ShouldCountLateHitsInRolledUpBucketsOnce() {
+        // Given
+        String uri = uniqueUri();
+        storage.saveAll(List.of(hit(uri, "10.0.0.1", DAY.plusHours(1))));
+        hitSummaryFlusher.flush();
+        storage.saveAll(List.of(hit(uri, "10.0.0.2", DAY.plusHours(1).plusMinutes(30))));
+
+        // When
+        List<Object[]> beforeFlush = storage.findStats(DAY, DAY.plusDays(1), List.of(uri));
+        hitSummaryFlusher.flush();
+        List<Object[]> afterFlush = storage.findStats(DAY, DAY.plusDays(1), List.of(uri));
+
+        // Then
+        assertRow(beforeFlush, uri, 2L);
+        assertRow(afterFlush, uri, 2L);
+        assertEquals(2L, dailyRollup(uri));
+    }
+
+    @Test
+    void findApproximateUniqueStats_ShouldCountLateVisitorsOfSketchedDays() {
+        // Given
+        String uri = uniqueUri();
+        storage.saveAll(List.of(hit(uri, "10.0.0.1", DAY.plusHours(1))));
+        hitSummaryFlusher.flush();
+        storage.saveAll(List.of(
+                hit(uri, "10.0.0.1", DAY.plusHours(2)),
+                hit(uri, "10.0.0.2", DAY.plusHours(3))));
+
+        // When
+        List<Object[]> beforeFlush = storage.findApproximateUniqueStats(DAY, DAY.plusDays(1), List.of(uri));
+        hitSummaryFlusher.flush();
+        List<Object[]> afterFlush = storage.findApproximateUniqueStats(DAY, DAY.plusDays(1), List.of(uri));
+
+        // Then
+        assertRow(beforeFlush, uri, 2L);
+        assertRow(afterFlush, uri, 2L);
+        assertEquals(1L, sketchRows(uri));
+    }
+
+    @Test
+    void flush_ShouldRollUpCommittedHitsNoFlusherHasSeen() {
+        // Given
+        String uri = uniqueUri();
+        // written around the storage, as if the service had crashed before its next flush
+        hitBatchRepository.saveAll(List.of(
+                hit(uri, "10.0.0.1", DAY.plusHours(1)),
+                hit(uri, "10.0.0.2", DAY.plusHours(2))));
+
+        // When
+        hitSummaryFlusher.flush();
+
+        // Then
+        assertEquals(2L, dailyRollup(uri));
+        assertEquals(1L, sketchRows(uri));
+        assertRow(storage.findStats(DAY, DAY.plusDays(1), List.of(uri)), uri, 2L);
+        assertRow(storage.findApproximateUniqueStats(DAY, DAY.plusDays(1), List.of(uri)), uri, 2L);
+    }
+
+    @Test
+    void flush_ShouldWaitForHitsStillBeingInserted() throws Exception {
+        // Given
+        String uri = uniqueUri();
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> slowWriter = executor.submit(() -> new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> {
+                        hitBatchRepository.saveAll(List.of(hit(uri, "10.0.0.1", DAY.plusHours(1))));
+                        inserted.countDown();
+                        await(commit);
+                    }));
+            await(inserted);
+
+            // When
+            Future<?> flush = executor.submit(hitSummaryFlusher::flush);
+            Thread.sleep(200);
+            boolean flushedBeforeCommit = flush.isDone();
+            commit.countDown();
+            slowWriter.get(10, TimeUnit.SECONDS);
+            flush.get(10, TimeUnit.SECONDS);
+
+            // Then
+            assertFalse(flushedBeforeCommit);
+            assertEquals(1L, dailyRollup(uri));
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void findStats_WhenUriListExceedsBindParameterLimit_ShouldFilterByAll() {
+        // Given
+        String wanted = uniqueUri();
+        String other = uniqueUri();
+        storage.saveAll(List.of(
+                hit(wanted, "10.0.0.1", DAY.plusHours(1)),
+                hit(wanted, "10.0.0.1", DAY.plusHours(2)),
+                hit(other, "10.0.0.1", DAY.plusHours(3))));
+        hitSummaryFlusher.flush();
+        // more uris than the 32767 parameters PostgreSQL allows in one statement, wanted last
+        List<String> uris = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            uris.add(uniqueUri());
+        }
+        uris.add(wanted);
+
+        // When
+        List<Object[]> stats = storage.findStats(DAY, DAY.plusDays(1), uris);
+        List<Object[]> unique = storage.findUniqueStats(DAY, DAY.plusDays(1), uris);
+        List<Object[]> approximate = storage.findApproximateUniqueStats(DAY, DAY.plusDays(1), uris);
+
+        // Then
+        assertRow(stats, wanted, 2L);
+        assertRow(unique, wanted, 1L);
+        assertRow(approximate, wanted, 1L);
+    }
+
+    @Test
+    void streamStats_ShouldReadRowsThroughCursorInsideTransaction() {
+        // Given
+        List<String> uris = new ArrayList<>();
+        List<HitEntity> hits = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            String uri = uniqueUri();
+            uris.add(uri);
+            hits.add(hit(uri, "10.0.0.1", DAY.plusHours(1)));
+            hits.add(hit(uri, "10.0.0.1", DAY.plusHours(2)));
+        }
+        storage.saveAll(hits);
+        hitSummaryFlusher.flush();
+
+        for (boolean unique : new boolean[]{false, true}) {
+            // When
+            Map<String, Long> counts = new HashMap<>();
+            List<Long> openCursors = new ArrayList<>();
+            storage.streamStats(DAY, DAY.plusDays(1), uris, unique, false, row -> {
+                assertTrue(TransactionSynchronizationManager.isActualTransactionActive());
+                openCursors.add(jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM pg_cursors WHERE name <> ''", Long.class));
+                counts.put((String) row[1], (Long) row[2]);
+            });
+
+            // Then
+            assertEquals(uris.size(), counts.size());
+            assertTrue(counts.values().stream().allMatch(count -> count == (unique ? 1L : 2L)));
+            // the portal stays open between fetches only when the driver honours the fetch size
+            assertEquals(1L, openCursors.getFirst());
+        }
+    }
+
+    private long dailyRollup(String uri) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(hits), 0) FROM hits_daily WHERE uri = ?",
+                Long.class, uri);
+    }
+
+    private long sketchRows(String uri) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM hits_daily_hll WHERE uri = ?", Long.class, uri);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String uniqueUri() {
+        return "/events/" + UUID.randomUUID();
+    }
+
+    private static HitEntity hit(String uri, String ip, LocalDateTime timestamp) {
+        return new HitEntity(null, "ewm-main-service", uri, ip, timestamp);
+    }
+
+    private static void assertRow(List<Object[]> rows, String uri, long hits) {
+        assertEquals(1, rows.size());
+        assertEquals("ewm-main-service", rows.get(0)[0]);
+        assertEquals(uri, rows.get(0)[1]);
+        assertEquals(hits, rows.get(0)[2]);
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.repository.RollupGranularity;
+import ru.practicum.repository.RollupPlanner;
+import ru.practicum.repository.RollupRange;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollupPlannerTest {
+
+    @Test
+    void plan_WhenRangeSpansDays_ShouldUseDailyRollupsAndRawOnlyAtEdges() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 2, 10, 15, 30);
+        LocalDateTime end = LocalDateTime.of(2024, 2, 10, 5, 7, 12);
+
+        // When
+        List<RollupRange> ranges = RollupPlanner.plan(start, end);
+
+        // Then
+        assertTrue(ranges.contains(new RollupRange(RollupGranularity.DAY,
+                LocalDateTime.of(2024, 1, 3, 0, 0), LocalDateTime.of(2024, 2, 10, 0, 0))));
+        assertTrue(ranges.contains(new RollupRange(RollupGranularity.HOUR,
+                LocalDateTime.of(2024, 1, 2, 11, 0), LocalDateTime.of(2024, 1, 3, 0, 0))));
+        assertTrue(ranges.contains(new RollupRange(RollupGranularity.HOUR,
+                LocalDateTime.of(2024, 2, 10, 0, 0), LocalDateTime.of(2024, 2, 10, 5, 0))));
+        assertTrue(ranges.contains(new RollupRange(null,
+                LocalDateTime.of(2024, 1, 2, 10, 15, 30), LocalDateTime.of(2024, 1, 2, 10, 16))));
+        assertTrue(ranges.contains(new RollupRange(null,
+                LocalDateTime.of(2024, 2, 10, 5, 7), LocalDateTime.of(2024, 2, 10, 5, 7, 12))));
+        assertEquals(7, ranges.size());
+        assertCoversExactly(ranges, start, end);
+    }
+
+    @Test
+    void plan_WhenRangeIsAlignedToDays_ShouldUseSingleDailyRange() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2000, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        // When
+        List<RollupRange> ranges = RollupPlanner.plan(start, end);
+
+        // Then
+        assertEquals(List.of(new RollupRange(RollupGranularity.DAY, start, end)), ranges);
+    }
+
+    @Test
+    void plan_WhenRangeIsWithinOneMinute_ShouldUseRawHitsOnly() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 2, 10, 15, 10);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 2, 10, 15, 50);
+
+        // When
+        List<RollupRange> ranges = RollupPlanner.plan(start, end);
+
+        // Then
+        assertEquals(List.of(new RollupRange(null, start, end)), ranges);
+    }
+
+    @Test
+    void plan_WhenRangeIsWithinOneDay_ShouldNotUseDailyRollups() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 2, 10, 15, 10);
+        LocalDateTime end = LocalDateTime.of(2024, 1, 2, 18, 0, 0);
+
+        // When
+        List<RollupRange> ranges = RollupPlanner.plan(start, end);
+
+        // Then
+        assertTrue(ranges.stream().noneMatch(r -> r.granularity() == RollupGranularity.DAY));
+        assertCoversExactly(ranges, start, end);
+    }
+
+    @Test
+    void plan_WhenStartEqualsEnd_ShouldReturnNoRanges() {
+        // Given
+        LocalDateTime time = LocalDateTime.of(2024, 1, 2, 10, 15, 10);
+
+        // When & Then
+        assertTrue(RollupPlanner.plan(time, time).isEmpty());
+    }
+
+    private static void assertCoversExactly(List<RollupRange> ranges, LocalDateTime start, LocalDateTime end) {
+        List<RollupRange> sorted = ranges.stream().sorted(Comparator.comparing(RollupRange::from)).toList();
+        assertEquals(start, sorted.getFirst().from());
+        assertEquals(end, sorted.getLast().to());
+        for (int i = 1; i < sorted.size(); i++) {
+            assertEquals(sorted.get(i - 1).to(), sorted.get(i).from());
+        }
+        Duration total = sorted.stream()
+                .map(r -> Duration.between(r.from(), r.to()))
+                .reduce(Duration.ZERO, Duration::plus);
+        assertEquals(Duration.between(start, end), total);
+    }
+}
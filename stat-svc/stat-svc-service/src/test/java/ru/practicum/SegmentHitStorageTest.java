@@ -0,0 +1,193 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.model.HitEntity;
+import ru.practicum.storage.segment.SegmentHitStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentHitStorageTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    @TempDir
+    private Path directory;
+
+    private SegmentHitStorage storage;
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null && storage.isRunning()) {
+            storage.stop();
+        }
+    }
+
+    @Test
+    void findStats_ShouldCountHitsInBufferAndSegments() throws IOException {
+        // Given
+        storage = open(3);
+        storage.saveAll(List.of(
+                hit("/events/1", "10.0.0.1", DAY.plusHours(1)),
+                hit("/events/1", "10.0.0.1", DAY.plusHours(2)),
+                hit("/events/2", "10.0.0.2", DAY.plusHours(3)),
+                hit("/events/1", "10.0.0.3", DAY.plusHours(4))));
+
+        // When
+        List<Object[]> stats = storage.findStats(DAY, DAY.plusDays(1), null);
+
+        // Then
+        assertEquals(1, segmentFiles().size());
+        assertRows(stats, "/events/1", 3L, "/events/2", 1L);
+    }
+
+    @Test
+    void findUniqueStats_ShouldCountEachIpOnce() throws IOException {
+        // Given
+        storage = open(2);
+        storage.saveAll(List.of(
+                hit("/events/1", "10.0.0.1", DAY.plusHours(1)),
+                hit("/events/1", "10.0.0.1", DAY.plusHours(2)),
+                hit("/events/1", "2001:db8:0:0:0:0:0:1", DAY.plusHours(3)),
+                hit("/events/1", "10.0.0.2", DAY.plusHours(4)),
+                hit("/events/1", "2001:db8:0:0:0:0:0:1", DAY.plusHours(5))));
+
+        // When
+        List<Object[]> stats = storage.findUniqueStats(DAY, DAY.plusDays(1), List.of("/events/1"));
+
+        // Then
+        assertRows(stats, "/events/1", 3L);
+    }
+
+    @Test
+    void findStats_ShouldFilterByUrisAndIncludeBothEndsOfRange() throws IOException {
+        // Given
+        storage = open(100);
+        List<HitEntity> hits = new ArrayList<>();
+        for (int hour = 0; hour < 48; hour++) {
+            hits.add(hit("/events/" + hour % 3, "10.0.0." + hour, DAY.plusHours(hour)));
+        }
+        storage.saveAll(hits);
+        storage.flush();
+
+        // When
+        List<Object[]> stats = storage.findStats(DAY.plusHours(3), DAY.plusHours(9), List.of("/events/0", "/missing"));
+        List<Object[]> unknown = storage.findStats(DAY, DAY.plusDays(2), List.of("/missing"));
+
+        // Then
+        assertRows(stats, "/events/0", 3L);
+        assertTrue(unknown.isEmpty());
+    }
+
+    @Test
+    void restart_ShouldReloadSegmentsAndReplayWriteAheadLog() throws IOException {
+        // Given
+        storage = open(2);
+        storage.saveAll(List.of(
+                hit("/events/1", "10.0.0.1", DAY.plusHours(1)),
+                hit("/events/1", "10.0.0.2", DAY.plusHours(2)),
+                hit("/events/2", "10.0.0.3", DAY.plusHours(3))));
+
+        // When
+        SegmentHitStorage restarted = open(2);
+
+        // Then
+        assertRows(restarted.findStats(DAY, DAY.plusDays(1), null), "/events/1", 2L, "/events/2", 1L);
+        assertEquals(2, segmentFiles().size());
+    }
+
+    @Test
+    void compact_ShouldMergeSmallSegmentsIntoOneSortedByTime() throws IOException {
+        // Given
+        storage = open(100);
+        for (int hour = 11; hour >= 0; hour--) {
+            storage.saveAll(List.of(hit(hour < 4 ? "/events/0" : "/events/1", "10.0.0." + hour, DAY.plusHours(hour))));
+            storage.flush();
+        }
+
+        // When
+        storage.compact();
+
+        // Then
+        assertEquals(List.of("segment-1-12.seg"), segmentFiles().stream().map(file -> file.getFileName().toString())
+                .toList());
+        assertRows(storage.findStats(DAY.plusHours(2), DAY.plusHours(6), null), "/events/1", 3L, "/events/0", 2L);
+        assertRows(open(100).findStats(DAY, DAY.plusDays(1), null), "/events/1", 8L, "/events/0", 4L);
+    }
+
+    @Test
+    void compact_ShouldKeepSegmentsThatAreFullOrTooFew() throws IOException {
+        // Given
+        storage = open(2);
+        for (int hour = 0; hour < 12; hour++) {
+            storage.saveAll(List.of(hit("/events/1", "10.0.0.1", DAY.plusHours(hour))));
+            storage.flush();
+        }
+
+        // When
+        storage.compact();
+
+        // Then
+        assertEquals(12, segmentFiles().size());
+    }
+
+    @Test
+    void restart_AfterCompactionCrash_ShouldDropMergedSegments() throws IOException {
+        // Given
+        storage = open(100);
+        for (int hour = 0; hour < 10; hour++) {
+            storage.saveAll(List.of(hit("/events/1", "10.0.0.1", DAY.plusHours(hour))));
+            storage.flush();
+        }
+        Path backup = Files.createDirectory(directory.resolve("backup"));
+        for (Path file : segmentFiles()) {
+            Files.copy(file, backup.resolve(file.getFileName()));
+        }
+        storage.compact();
+        // as if the service had died after writing the merged segment, before deleting its inputs
+        try (Stream<Path> files = Files.list(backup)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, directory.resolve(file.getFileName()));
+            }
+        }
+
+        // When
+        SegmentHitStorage restarted = open(100);
+
+        // Then
+        assertRows(restarted.findStats(DAY, DAY.plusDays(1), null), "/events/1", 10L);
+        assertEquals(1, segmentFiles().size());
+    }
+
+    private SegmentHitStorage open(int rowsPerSegment) throws IOException {
+        return new SegmentHitStorage(directory.toString(), rowsPerSegment, 60_000, true);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).toList();
+        }
+    }
+
+    private static HitEntity hit(String uri, String ip, LocalDateTime timestamp) {
+        return new HitEntity(null, "ewm-main-service", uri, ip, timestamp);
+    }
+
+    private static void assertRows(List<Object[]> rows, Object... expected) {
+        assertEquals(expected.length / 2, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals("ewm-main-service", rows.get(i)[0]);
+            assertEquals(expected[i * 2], rows.get(i)[1]);
+            assertEquals(expected[i * 2 + 1], rows.get(i)[2]);
+        }
+    }
+}
@@ -11,18 +11,25 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.controller.StatsController;
 import ru.practicum.dto.EndpointHit;
+import ru.practicum.dto.StatsQueryRequest;
 import ru.practicum.dto.ViewStats;
+import ru.practicum.exception.DateValidationException;
 import ru.practicum.service.StatsService;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -56,6 +63,40 @@ class StatsControllerTest {
         verify(statsService).saveHit(any(EndpointHit.class));
     }
 
+    @Test
+    void hits_ShouldReturnCreatedAndSaveAllHits() throws Exception {
+        // Given
+        List<EndpointHit> hits = List.of(
+                new EndpointHit(null, "app", "/a", "192.168.0.1", "2023-10-20 10:00:00"),
+                new EndpointHit(null, "app", "/b", "192.168.0.2", "2023-10-20 10:00:01")
+        );
+
+        // When & Then
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isCreated());
+
+        verify(statsService).saveHits(argThat(saved -> saved.size() == 2));
+    }
+
+    @Test
+    void hits_WhenAnyHitIsInvalid_ShouldReturnBadRequest() throws Exception {
+        // Given
+        List<EndpointHit> hits = List.of(
+                new EndpointHit(null, "app", "/a", "192.168.0.1", "2023-10-20 10:00:00"),
+                new EndpointHit(null, "app", "", "192.168.0.2", "2023-10-20 10:00:01")
+        );
+
+        // When & Then
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hits)))
+                .andExpect(status().isBadRequest());
+
+        verify(statsService, never()).saveHits(any());
+    }
+
     @Test
     void getStats_ShouldReturnStats() throws Exception {
         // Given
@@ -112,4 +153,113 @@ class StatsControllerTest {
 
         verify(statsService).getStats(any(LocalDateTime.class), any(LocalDateTime.class), any(), eq(false));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getStats_WithApproximateUnique_ShouldReturnErrorBound() throws Exception {
+        // Given
+        when(statsService.getApproximateUniqueStats(any(LocalDateTime.class), any(LocalDateTime.class), any()))
+                .thenReturn(List.of(new ViewStats("app", "/events/1", 100L, 0.0163)));
+
+        String params = String.format(
+                "/stats?start=%s&end=%s&unique=true&approximate=true",
+                "2023-10-20 10:00:00",
+                "2023-10-21 10:00:00"
+        );
+
+        // When & Then
+        mockMvc.perform(get(params))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(100L))
+                .andExpect(jsonPath("$[0].errorBound").value(0.0163));
+
+        verify(statsService, never()).getStats(any(), any(), any(), any());
+    }
+
+    @Test
+    void getStats_WithApproximateButNotUnique_ShouldReturnExactCounts() throws Exception {
+        // Given
+        when(statsService.getStats(any(LocalDateTime.class), any(LocalDateTime.class), any(), eq(false)))
+                .thenReturn(List.of(new ViewStats("app", "/events/1", 7L)));
+
+        String params = String.format(
+                "/stats?start=%s&end=%s&approximate=true",
+                "2023-10-20 10:00:00",
+                "2023-10-21 10:00:00"
+        );
+
+        // When & Then
+        mockMvc.perform(get(params))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(7L))
+                .andExpect(jsonPath("$[0].errorBound").doesNotExist());
+
+        verify(statsService, never()).getApproximateUniqueStats(any(), any(), any());
+    }
+
+    @Test
+    void getStats_WhenNdjsonAccepted_ShouldStreamOneObjectPerLine() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            Consumer<ViewStats> consumer = invocation.getArgument(5);
+            consumer.accept(new ViewStats("app", "/events/1", 5L));
+            consumer.accept(new ViewStats("app", "/events/2", 3L));
+            return null;
+        }).when(statsService).streamStats(any(), any(), any(), eq(true), eq(false), any());
+
+        // When & Then
+        mockMvc.perform(get("/stats?start=2023-10-20 10:00:00&end=2023-10-21 10:00:00&unique=true")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"app\":\"app\",\"uri\":\"/events/1\",\"hits\":5}\n"
+                                + "{\"app\":\"app\",\"uri\":\"/events/2\",\"hits\":3}\n"));
+
+        verify(statsService, never()).getStats(any(), any(), any(), any());
+    }
+
+    @Test
+    void getStats_WhenNdjsonAcceptedAndRangeInvalid_ShouldReturnJsonError() throws Exception {
+        // Given
+        doThrow(new DateValidationException("Start time must be before or equal to end time"))
+                .when(statsService).streamStats(any(), any(), any(), anyBoolean(), anyBoolean(), any());
+
+        // When & Then
+        mockMvc.perform(get("/stats?start=2023-10-21 10:00:00&end=2023-10-20 10:00:00")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value(400));
+    }
+
+    @Test
+    void queryStats_ShouldTakeUrisFromBody() throws Exception {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2023, 10, 20, 10, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 21, 10, 0, 0);
+        List<String> uris = IntStream.rangeClosed(1, 500).mapToObj(i -> "/events/" + i).toList();
+        when(statsService.getStats(eq(start), eq(end), eq(uris), eq(true)))
+                .thenReturn(List.of(new ViewStats("app", "/events/1", 5L)));
+
+        // When & Then
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new StatsQueryRequest(start, end, uris, true, false))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].uri").value("/events/1"))
+                .andExpect(jsonPath("$[0].hits").value(5L));
+
+        verify(statsService).getStats(eq(start), eq(end), eq(uris), eq(true));
+    }
+
+    @Test
+    void queryStats_WhenStartIsMissing_ShouldReturnBadRequest() throws Exception {
+        // When & Then
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"end\":\"2023-10-21 10:00:00\",\"uris\":[\"/events/1\"]}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(statsService);
+    }
+}
@@ -1,5 +1,6 @@
 package ru.practicum;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,14 +10,23 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.dto.EndpointHit;
 import ru.practicum.dto.ViewStats;
 import ru.practicum.exception.DateValidationException;
+import ru.practicum.exception.IpValidationException;
 import ru.practicum.model.HitEntity;
-import ru.practicum.repository.HitRepository;
+import ru.practicum.service.HitIngestionQueue;
 import ru.practicum.service.StatsService;
+import ru.practicum.sketch.HyperLogLog;
+import ru.practicum.storage.HitStorage;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -26,17 +36,23 @@ import static org.mockito.Mockito.*;
 class StatsServiceTest {
 
     @Mock
-    private HitRepository hitRepository;
+    private HitStorage hitStorage;
+
+    @Mock
+    private HitIngestionQueue hitIngestionQueue;
+
+    private SimpleMeterRegistry meterRegistry;
 
     private StatsService statsService;
 
     @BeforeEach
     void setUp() {
-        statsService = new StatsService(hitRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        statsService = new StatsService(hitStorage, hitIngestionQueue, meterRegistry, 2000);
     }
 
     @Test
-    void saveHit_ShouldCallRepositorySave_WithCorrectEntity() {
+    void saveHit_ShouldWriteHitToStorage_WithCorrectEntity() {
         // Given
         String app = "app";
         String uri = "uri";
@@ -44,20 +60,86 @@ class StatsServiceTest {
         String timestamp = "2023-10-20 10:00:00";
         EndpointHit dto = new EndpointHit(null, app, uri, ip, timestamp);
 
-        ArgumentCaptor<HitEntity> captor = ArgumentCaptor.forClass(HitEntity.class);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<HitEntity>> captor = ArgumentCaptor.forClass(List.class);
 
         // When
         statsService.saveHit(dto);
 
         // Then
-        verify(hitRepository).save(captor.capture());
-        HitEntity savedEntity = captor.getValue();
+        verify(hitStorage).saveAll(captor.capture());
+        HitEntity savedEntity = captor.getValue().getFirst();
         assertEquals(app, savedEntity.getApp());
         assertEquals(uri, savedEntity.getUri());
         assertEquals(ip, savedEntity.getIp());
         assertEquals(LocalDateTime.of(2023, 10, 20, 10, 0, 0), savedEntity.getTimestamp());
     }
 
+    @Test
+    void saveHit_ShouldStoreIpv6InCanonicalForm() {
+        // Given
+        EndpointHit dto = new EndpointHit(null, "app", "uri", "2001:DB8:0:0::1", "2023-10-20 10:00:00");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<HitEntity>> captor = ArgumentCaptor.forClass(List.class);
+
+        // When
+        statsService.saveHit(dto);
+
+        // Then
+        verify(hitStorage).saveAll(captor.capture());
+        assertEquals("2001:db8:0:0:0:0:0:1", captor.getValue().getFirst().getIp());
+    }
+
+    @Test
+    void saveHit_WhenIpIsNotAnAddress_ShouldThrowIpValidationException() {
+        // Given
+        EndpointHit dto = new EndpointHit(null, "app", "uri", "localhost", "2023-10-20 10:00:00");
+
+        // When & Then
+        assertThrows(IpValidationException.class, () -> statsService.saveHit(dto));
+        verifyNoInteractions(hitStorage, hitIngestionQueue);
+    }
+
+    @Test
+    void saveHit_WhenAsyncIngestionEnabled_ShouldSubmitToQueue() {
+        // Given
+        EndpointHit dto = new EndpointHit(null, "app", "uri", "192.168.0.1", "2023-10-20 10:00:00");
+        when(hitIngestionQueue.isEnabled()).thenReturn(true);
+
+        ArgumentCaptor<HitEntity> captor = ArgumentCaptor.forClass(HitEntity.class);
+
+        // When
+        statsService.saveHit(dto);
+
+        // Then
+        verify(hitIngestionQueue).submit(captor.capture());
+        verifyNoInteractions(hitStorage);
+        assertEquals("uri", captor.getValue().getUri());
+        assertEquals(LocalDateTime.of(2023, 10, 20, 10, 0, 0), captor.getValue().getTimestamp());
+    }
+
+    @Test
+    void saveHits_ShouldWriteAllHitsInOneBatch() {
+        // Given
+        List<EndpointHit> dtos = List.of(
+                new EndpointHit(null, "app", "/a", "192.168.0.1", "2023-10-20 10:00:00"),
+                new EndpointHit(null, "app", "/b", "192.168.0.2", "2023-10-20 10:00:01")
+        );
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<HitEntity>> captor = ArgumentCaptor.forClass(List.class);
+
+        // When
+        statsService.saveHits(dtos);
+
+        // Then
+        verify(hitStorage).saveAll(captor.capture());
+        verifyNoInteractions(hitIngestionQueue);
+        assertEquals(List.of("/a", "/b"), captor.getValue().stream().map(HitEntity::getUri).toList());
+        assertEquals(LocalDateTime.of(2023, 10, 20, 10, 0, 1), captor.getValue().get(1).getTimestamp());
+    }
+
     @Test
     void getStats_WhenStartAfterEnd_ShouldThrowDateValidationException() {
         // Given
@@ -82,7 +164,7 @@ class StatsServiceTest {
                 new Object[]{"app1", "/test1", 5L},
                 new Object[]{"app2", "/test2", 3L}
         );
-        when(hitRepository.findStats(start, end, uris)).thenReturn(dbResults);
+        when(hitStorage.findStats(start, end, uris)).thenReturn(dbResults);
 
         // When
         List<ViewStats> result = statsService.getStats(start, end, uris, unique);
@@ -96,8 +178,8 @@ class StatsServiceTest {
         assertEquals("/test2", result.get(1).getUri());
         assertEquals(3L, result.get(1).getHits());
 
-        verify(hitRepository).findStats(eq(start), eq(end), eq(uris));
-        verify(hitRepository, never()).findUniqueStats(any(), any(), any());
+        verify(hitStorage).findStats(eq(start), eq(end), eq(uris));
+        verify(hitStorage, never()).findUniqueStats(any(), any(), any());
     }
 
     @Test
@@ -112,7 +194,7 @@ class StatsServiceTest {
                 new Object[]{"app1", "/test1", 2L},
                 new Object[]{"app2", "/test2", 3L}
         );
-        when(hitRepository.findUniqueStats(start, end, uris)).thenReturn(dbResults);
+        when(hitStorage.findUniqueStats(start, end, uris)).thenReturn(dbResults);
 
         // When
         List<ViewStats> result = statsService.getStats(start, end, uris, unique);
@@ -123,30 +205,30 @@ class StatsServiceTest {
         assertEquals("/test1", result.getFirst().getUri());
         assertEquals(2L, result.getFirst().getHits());
 
-        verify(hitRepository).findUniqueStats(eq(start), eq(end), eq(uris));
-        verify(hitRepository, never()).findStats(any(), any(), any());
+        verify(hitStorage).findUniqueStats(eq(start), eq(end), eq(uris));
+        verify(hitStorage, never()).findStats(any(), any(), any());
     }
 
     @Test
-    void getStats_WhenUrisIsNull_ShouldPassNullToRepository() {
+    void getStats_WhenUrisIsNull_ShouldPassNullToStorage() {
         // Given
         LocalDateTime start = LocalDateTime.of(2023, 10, 20, 10, 0);
         LocalDateTime end = LocalDateTime.of(2023, 10, 21, 10, 0);
         Boolean unique = false;
 
         List<Object[]> dbResults = Collections.singletonList(new Object[]{"app1", "/", 10L});
-        when(hitRepository.findStats(start, end, null)).thenReturn(dbResults);
+        when(hitStorage.findStats(start, end, null)).thenReturn(dbResults);
 
         // When
         List<ViewStats> result = statsService.getStats(start, end, null, unique);
 
         // Then
         assertEquals(1, result.size());
-        verify(hitRepository).findStats(eq(start), eq(end), isNull());
+        verify(hitStorage).findStats(eq(start), eq(end), isNull());
     }
 
     @Test
-    void getStats_WhenUrisIsEmpty_ShouldPassEmptyListToRepository() {
+    void getStats_WhenUrisIsEmpty_ShouldPassEmptyListToStorage() {
         // Given
         LocalDateTime start = LocalDateTime.of(2023, 10, 20, 10, 0);
         LocalDateTime end = LocalDateTime.of(2023, 10, 21, 10, 0);
@@ -154,13 +236,120 @@ class StatsServiceTest {
         Boolean unique = false;
 
         List<Object[]> dbResults = Collections.emptyList();
-        when(hitRepository.findStats(start, end, uris)).thenReturn(dbResults);
+        when(hitStorage.findStats(start, end, uris)).thenReturn(dbResults);
 
         // When
         List<ViewStats> result = statsService.getStats(start, end, uris, unique);
 
         // Then
         assertTrue(result.isEmpty());
-        verify(hitRepository).findStats(eq(start), eq(end), eq(uris));
+        verify(hitStorage).findStats(eq(start), eq(end), eq(uris));
+    }
+
+    @Test
+    void getStats_WhenSameQueryRunsConcurrently_ShouldQueryStorageOnce() throws Exception {
+        // Given
+        int callers = 8;
+        LocalDateTime start = LocalDateTime.of(2000, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 21, 10, 0);
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(hitStorage.findUniqueStats(eq(start), any(), anyList())).thenAnswer(invocation -> {
+            queryStarted.countDown();
+            assertTrue(releaseQuery.await(10, TimeUnit.SECONDS));
+            return Collections.singletonList(new Object[]{"ewm", "/events/1", 7L});
+        });
+
+        // When
+        List<Future<List<ViewStats>>> results;
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            Future<List<ViewStats>> first = executor.submit(
+                    () -> statsService.getStats(start, end, List.of("/events/1", "/events/2"), true));
+            assertTrue(queryStarted.await(10, TimeUnit.SECONDS));
+            results = new ArrayList<>(List.of(first));
+            for (int i = 1; i < callers; i++) {
+                LocalDateTime laterEnd = end.plusNanos(i * 250_000_000L);
+                results.add(executor.submit(
+                        () -> statsService.getStats(start, laterEnd, List.of("/events/2", "/events/1"), true)));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (meterRegistry.counter("stats.queries.coalesced").count() < callers - 1
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            releaseQuery.countDown();
+        }
+
+        // Then
+        assertEquals(callers - 1, meterRegistry.counter("stats.queries.coalesced").count());
+        verify(hitStorage, times(1)).findUniqueStats(any(), any(), any());
+        for (Future<List<ViewStats>> result : results) {
+            assertEquals(7L, result.get().getFirst().getHits());
+        }
+    }
+
+    @Test
+    void getStats_WhenEndIsBeyondToleranceOfRunningQuery_ShouldQueryStorageItself() throws Exception {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2000, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 21, 10, 0);
+        LocalDateTime laterEnd = end.plusSeconds(5);
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(hitStorage.findStats(eq(start), eq(end), anyList())).thenAnswer(invocation -> {
+            queryStarted.countDown();
+            assertTrue(releaseQuery.await(10, TimeUnit.SECONDS));
+            return Collections.singletonList(new Object[]{"ewm", "/events/1", 7L});
+        });
+        when(hitStorage.findStats(eq(start), eq(laterEnd), anyList()))
+                .thenReturn(Collections.singletonList(new Object[]{"ewm", "/events/1", 9L}));
+
+        // When
+        List<ViewStats> later;
+        Future<List<ViewStats>> first;
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            first = executor.submit(() -> statsService.getStats(start, end, List.of("/events/1"), false));
+            assertTrue(queryStarted.await(10, TimeUnit.SECONDS));
+            later = statsService.getStats(start, laterEnd, List.of("/events/1"), false);
+            releaseQuery.countDown();
+        }
+
+        // Then
+        assertEquals(9L, later.getFirst().getHits());
+        assertEquals(7L, first.get().getFirst().getHits());
+        assertEquals(0, meterRegistry.counter("stats.queries.coalesced").count());
+    }
+
+    @Test
+    void getApproximateUniqueStats_ShouldReturnEstimatesWithErrorBound() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2023, 10, 20, 10, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 21, 10, 0);
+        List<String> uris = List.of("/events/1");
+
+        List<Object[]> dbResults = Collections.singletonList(new Object[]{"app1", "/events/1", 42L});
+        when(hitStorage.findApproximateUniqueStats(start, end, uris)).thenReturn(dbResults);
+
+        // When
+        List<ViewStats> result = statsService.getApproximateUniqueStats(start, end, uris);
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(42L, result.get(0).getHits());
+        assertEquals(HyperLogLog.RELATIVE_ERROR, result.get(0).getErrorBound());
+        verify(hitStorage, never()).findStats(any(), any(), any());
+        verify(hitStorage, never()).findUniqueStats(any(), any(), any());
+    }
+
+    @Test
+    void getApproximateUniqueStats_WhenStartIsAfterEnd_ShouldThrowException() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2023, 10, 21, 10, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 20, 10, 0);
+
+        // When & Then
+        assertThrows(DateValidationException.class,
+                () -> statsService.getApproximateUniqueStats(start, end, null));
+        verifyNoInteractions(hitStorage);
     }
-}
\ No newline at end of file
+}